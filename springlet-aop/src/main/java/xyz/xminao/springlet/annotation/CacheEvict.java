@@ -0,0 +1,21 @@
+package xyz.xminao.springlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 删除缓存，默认在方法正常返回后删除方法参数对应的key
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface CacheEvict {
+    // 缓存名
+    String value();
+
+    // 清空整个缓存，而不是只删除参数对应的key
+    boolean allEntries() default false;
+
+    // 在调用原始方法前删除，原始方法抛出异常也会删除
+    boolean beforeInvocation() default false;
+}
@@ -0,0 +1,15 @@
+package xyz.xminao.springlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 总是调用原始方法，并用返回值更新缓存
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface CachePut {
+    // 缓存名
+    String value();
+}
@@ -0,0 +1,15 @@
+package xyz.xminao.springlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 缓存方法返回值，key由方法参数生成，命中时不调用原始方法
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Cacheable {
+    // 缓存名，存在同名的Cache类型Bean时使用该Bean，否则使用内置缓存
+    String value();
+}
@@ -0,0 +1,19 @@
+package xyz.xminao.springlet.annotation;
+
+import xyz.xminao.springlet.aop.coalesce.ArgumentsKeyFunction;
+import xyz.xminao.springlet.aop.coalesce.CoalesceKeyFunction;
+
+import java.lang.annotation.*;
+
+/**
+ * 合并并发的相同调用：同一个方法key相同的调用正在执行时，后到的调用等待并共享它的返回值或异常，
+ * 由CoalesceBeanPostProcessor处理。返回的对象会被多个调用方共享，不应该被修改。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Coalesce {
+    // 根据参数计算key的函数，需要有public无参构造方法，默认按全部参数比较
+    Class<? extends CoalesceKeyFunction> key() default ArgumentsKeyFunction.class;
+}
@@ -0,0 +1,36 @@
+package xyz.xminao.springlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 自适应并发限制，由ConcurrencyLimitBeanPostProcessor处理
+ * 正在执行的调用数达到当前限制时直接抛出ConcurrencyLimitExceededException，而不是排队等待连接池等资源；
+ * 限制值根据观察到的耗时自动调整。
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface ConcurrencyLimit {
+
+    // 限制器名，同名的方法共享同一个限制，默认每个目标类的每个方法 目标类的全名.方法名 一个限制
+    String value() default "";
+
+    Algorithm algorithm() default Algorithm.GRADIENT;
+
+    int initialLimit() default 20;
+
+    int minLimit() default 1;
+
+    int maxLimit() default 200;
+
+    // 耗时超过该值（毫秒）视为过载，AIMD算法据此减小限制
+    long timeoutMillis() default 1000;
+
+    enum Algorithm {
+        // 加性增、乘性减：没有过载时限制+1，过载（超时或被下游拒绝）时乘以0.9
+        AIMD,
+        // 根据长期平均耗时和最近耗时的比例（梯度）调整限制，耗时上升时在过载前就开始减小
+        GRADIENT
+    }
+}
@@ -0,0 +1,16 @@
+package xyz.xminao.springlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 记录方法的调用次数、异常次数和耗时分布，由TimedBeanPostProcessor处理
+ * 标注在类上时记录所有public方法（不包括Object中定义的方法）
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Timed {
+    // 指标名，方法上默认为 目标类的全名.方法名(参数类型)，重载的方法各自一个指标；类上指定时作为前缀，即 value.方法名(参数类型)
+    String value() default "";
+}
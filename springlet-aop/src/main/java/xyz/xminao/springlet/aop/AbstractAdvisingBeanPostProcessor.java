@@ -0,0 +1,83 @@
+package xyz.xminao.springlet.aop;
+
+import xyz.xminao.springlet.annotation.Order;
+import xyz.xminao.springlet.context.ApplicationContextUtils;
+import xyz.xminao.springlet.context.BeanDefinition;
+import xyz.xminao.springlet.context.BeanPostProcessor;
+import xyz.xminao.springlet.context.ConfigurableApplicationContext;
+import xyz.xminao.springlet.exception.AopConfigException;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AOP BeanPostProcessor的基类，子类只需要提供切面
+ * 多个BeanPostProcessor处理同一个Bean时，切面合并到同一个代理中，而不是代理的代理；代理类和切面无关，合并时只创建新的代理实例，不生成新的代理类
+ * 返回前保存原始Bean的引用，后序ioc注入依赖要注入到原始bean。
+ * 子类同时作为ProxyPointcutProvider，getPointcuts()必须和getAdvisors()中使用的切点一致。
+ */
+public abstract class AbstractAdvisingBeanPostProcessor implements BeanPostProcessor, ProxyPointcutProvider {
+
+    // 并发创建Bean时多个线程同时写入
+    final Map<String, Object> originBeans = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        // bean可能已经被其他AOP BeanPostProcessor代理，取出原始Bean
+        Object target = bean instanceof ProxyObject proxy ? proxy.getProxyDispatcher().getTarget() : bean;
+        List<Advisor> advisors = getAdvisors(target.getClass(), beanName);
+        if (advisors.isEmpty()) {
+            return bean;
+        }
+        Object proxy = ProxyResolver.getInstance().createProxy(bean, advisors);
+        // 保存原始bean
+        originBeans.put(beanName, target);
+        return proxy;
+    }
+
+    /**
+     * 返回要应用到该Bean上的切面，不需要代理则返回空List
+     */
+    protected abstract List<Advisor> getAdvisors(Class<?> beanClass, String beanName);
+
+    /**
+     * 根据拦截器Bean创建切面，拦截器Bean可以是MethodInterceptor或InvocationHandler，
+     * 顺序由拦截器Bean类上的@Order决定
+     */
+    protected Advisor createAdvisor(MethodMatcher matcher, String handlerName) {
+        Object handlerBean = getHandlerBean(handlerName);
+        Order order = handlerBean.getClass().getAnnotation(Order.class);
+        int value = order == null ? Integer.MAX_VALUE : order.value();
+        if (handlerBean instanceof MethodInterceptor interceptor) {
+            return new Advisor(matcher, interceptor, value);
+        } else if (handlerBean instanceof InvocationHandler handler) {
+            return Advisor.of(matcher, handler, value);
+        } else {
+            throw new AopConfigException(String.format("Bean '%s' is neither MethodInterceptor nor InvocationHandler.", handlerName));
+        }
+    }
+
+    /**
+     * 从容器中查找拦截器Bean，还没创建就提前创建
+     */
+    protected Object getHandlerBean(String handlerName) {
+        ConfigurableApplicationContext ctx = (ConfigurableApplicationContext) ApplicationContextUtils.getRequiredApplicationContext();
+        BeanDefinition def = ctx.findBeanDefinition(handlerName);
+        if (def == null) {
+            throw new AopConfigException(String.format("Interceptor bean '%s' not found.", handlerName));
+        }
+        Object handlerBean = def.getInstance();
+        if (handlerBean == null) {
+            handlerBean = ctx.createBeanAsEarlySingleton(def);
+        }
+        return handlerBean;
+    }
+
+    @Override
+    public Object postProcessOnSetProperty(Object bean, String beanName) {
+        Object origin = this.originBeans.get(beanName);
+        return origin != null ? origin : bean;
+    }
+}
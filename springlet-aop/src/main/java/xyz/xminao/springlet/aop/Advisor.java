@@ -0,0 +1,38 @@
+package xyz.xminao.springlet.aop;
+
+import java.lang.reflect.InvocationHandler;
+
+/**
+ * 切面：切点 + 拦截器 + 顺序
+ * 一个Bean上的所有切面合并到同一个代理中，每个方法按order从小到大组成拦截器链
+ *
+ * @param matcher 切点，决定拦截哪些方法
+ * @param interceptor 拦截器
+ * @param order 顺序，越小越靠外层
+ */
+public record Advisor(MethodMatcher matcher, MethodInterceptor interceptor, int order) {
+
+    /**
+     * 兼容InvocationHandler拦截器，InvocationHandler直接调用原始Bean，所以只能位于拦截器链最内层
+     */
+    public static Advisor of(MethodMatcher matcher, InvocationHandler handler, int order) {
+        return new Advisor(matcher, new InvocationHandlerInterceptor(handler), order);
+    }
+}
+
+/**
+ * 把InvocationHandler适配为MethodInterceptor，proxy参数传入原始Bean
+ */
+final class InvocationHandlerInterceptor implements MethodInterceptor {
+
+    final InvocationHandler handler;
+
+    InvocationHandlerInterceptor(InvocationHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        return handler.invoke(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+    }
+}
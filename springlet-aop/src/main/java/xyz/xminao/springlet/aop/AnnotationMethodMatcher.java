@@ -0,0 +1,58 @@
+package xyz.xminao.springlet.aop;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按注解匹配方法
+ * 1. 方法上有注解：拦截该方法
+ * 2. 类上有注解：拦截所有public方法，但不拦截toString、hashCode等Object中定义的方法
+ * 方法上的注解查找结果按方法缓存
+ */
+public class AnnotationMethodMatcher implements MethodMatcher {
+
+    final Class<? extends Annotation> annotationType;
+    final Map<Method, Boolean> methodCache = new ConcurrentHashMap<>();
+
+    public AnnotationMethodMatcher(Class<? extends Annotation> annotationType) {
+        this.annotationType = annotationType;
+    }
+
+    public Class<? extends Annotation> getAnnotationType() {
+        return annotationType;
+    }
+
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+        if (isAnnotated(method)) {
+            return true;
+        }
+        return method.getDeclaringClass() != Object.class && targetClass.isAnnotationPresent(this.annotationType);
+    }
+
+    /**
+     * targetClass是否有需要拦截的方法
+     */
+    public boolean matchesAny(Class<?> targetClass) {
+        if (targetClass.isAnnotationPresent(this.annotationType)) {
+            return true;
+        }
+        for (Method method : targetClass.getMethods()) {
+            if (isAnnotated(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isAnnotated(Method method) {
+        Boolean annotated = this.methodCache.get(method);
+        if (annotated == null) {
+            annotated = method.isAnnotationPresent(this.annotationType);
+            this.methodCache.put(method, annotated);
+        }
+        return annotated;
+    }
+}
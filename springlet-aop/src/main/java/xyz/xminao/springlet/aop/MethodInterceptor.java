@@ -0,0 +1,10 @@
+package xyz.xminao.springlet.aop;
+
+/**
+ * 拦截器，InvocationHandler之外的另一种拦截方式
+ * 通过MethodInvocation.proceed()调用原始Bean的方法，直接调用目标方法而不经过Method.invoke反射
+ */
+@FunctionalInterface
+public interface MethodInterceptor {
+    Object invoke(MethodInvocation invocation) throws Throwable;
+}
@@ -0,0 +1,97 @@
+package xyz.xminao.springlet.aop;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一次被拦截的方法调用，由MethodInterceptor处理
+ * proceed()依次调用拦截器链中的下一个拦截器，到达末尾后通过创建代理时准备好的MethodHandle直接调用原始Bean，
+ * 不做反射调用，目标方法抛出的异常原样抛出
+ */
+public final class MethodInvocation {
+
+    // 统一成 (Object, Object[])Object 的MethodHandle，按声明方法的Class缓存，Class卸载后缓存一起回收
+    static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+    static final ClassValue<Map<Method, MethodHandle>> invokers = new ClassValue<>() {
+        @Override
+        protected Map<Method, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    final Object target;
+    final Method method;
+    final Object[] args;
+    final MethodInterceptor[] interceptors;
+    final MethodHandle invoker;
+    // 下一个要调用的拦截器
+    int index = 0;
+
+    MethodInvocation(Object target, Method method, Object[] args, MethodInterceptor[] interceptors, MethodHandle invoker) {
+        this.target = target;
+        this.method = method;
+        this.args = args;
+        this.interceptors = interceptors;
+        this.invoker = invoker;
+    }
+
+    /**
+     * 原始Bean
+     */
+    public Object getThis() {
+        return target;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * 调用参数，修改后会影响proceed()传给原始Bean的参数
+     */
+    public Object[] getArguments() {
+        return args;
+    }
+
+    /**
+     * 调用拦截器链中的下一个拦截器，没有则调用原始Bean的方法
+     */
+    public Object proceed() throws Throwable {
+        if (this.interceptors != null && this.index < this.interceptors.length) {
+            return this.interceptors[this.index++].invoke(this);
+        }
+        return this.invoker.invokeExact(this.target, this.args);
+    }
+
+    /**
+     * 从当前位置复制一个可以再次proceed()的调用，用于拦截器在原调用结束后重新调用后续链（如缓存刷新）
+     */
+    public MethodInvocation invocableClone() {
+        MethodInvocation clone = new MethodInvocation(this.target, this.method, this.args.clone(), this.interceptors, this.invoker);
+        clone.index = this.index;
+        return clone;
+    }
+
+    static MethodHandle invoker(Method method) {
+        Map<Method, MethodHandle> classInvokers = invokers.get(method.getDeclaringClass());
+        MethodHandle invoker = classInvokers.get(method);
+        if (invoker == null) {
+            invoker = classInvokers.computeIfAbsent(method, MethodInvocation::createInvoker);
+        }
+        return invoker;
+    }
+
+    static MethodHandle createInvoker(Method method) {
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return handle.asSpreader(Object[].class, method.getParameterCount()).asType(INVOKER_TYPE);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Cannot create invoker for method " + method, e);
+        }
+    }
+}
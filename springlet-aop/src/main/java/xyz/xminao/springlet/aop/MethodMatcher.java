@@ -0,0 +1,26 @@
+package xyz.xminao.springlet.aop;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * 切点，决定代理类要拦截哪些方法
+ * 只在生成代理类时对targetClass的public方法判断一次，不匹配的方法不会被代理类覆写，直接调用父类即原始实现
+ */
+@FunctionalInterface
+public interface MethodMatcher {
+
+    /**
+     * 拦截所有public方法，和原来ProxyResolver的行为一致
+     */
+    MethodMatcher ALL = (method, targetClass) -> true;
+
+    boolean matches(Method method, Class<?> targetClass);
+
+    /**
+     * 方法上标注了注解，或者类上标注了注解（此时不包括Object中定义的方法）
+     */
+    static MethodMatcher annotatedWith(Class<? extends Annotation> annotationType) {
+        return new AnnotationMethodMatcher(annotationType);
+    }
+}
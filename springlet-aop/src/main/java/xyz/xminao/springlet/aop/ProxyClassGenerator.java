@@ -0,0 +1,131 @@
+package xyz.xminao.springlet.aop;
+
+import jakarta.annotation.Nullable;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.dynamic.DynamicType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.xminao.springlet.io.ResourceResolver;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 构建期预生成代理类
+ *
+ * 扫描指定包下的类，通过ServiceLoader加载的ProxyPointcutProvider计算每个类需要拦截的方法，
+ * 生成和运行期完全相同的代理类并写入class输出目录。运行期ProxyResolver在同一个ClassLoader中找到预生成的类后
+ * 直接使用，不再生成字节码；找不到或者覆写的方法不一致（例如拦截的Object方法不同）时退回运行期生成。
+ *
+ * 用法（在process-classes阶段执行）：
+ * java xyz.xminao.springlet.aop.ProxyClassGenerator target/classes com.example
+ */
+public class ProxyClassGenerator {
+
+    static final Logger logger = LoggerFactory.getLogger(ProxyClassGenerator.class);
+
+    final ProxyResolver resolver = new ProxyResolver();
+    final List<ProxyPointcutProvider> providers;
+
+    public ProxyClassGenerator() {
+        this(loadProviders());
+    }
+
+    public ProxyClassGenerator(List<ProxyPointcutProvider> providers) {
+        this.providers = providers;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ProxyClassGenerator <outputDir> <basePackage>...");
+        }
+        List<String> generated = new ProxyClassGenerator().generate(Paths.get(args[0]), Arrays.copyOfRange(args, 1, args.length));
+        logger.info("{} proxy classes generated in {}", generated.size(), args[0]);
+    }
+
+    static List<ProxyPointcutProvider> loadProviders() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = ProxyClassGenerator.class.getClassLoader();
+        }
+        List<ProxyPointcutProvider> providers = new ArrayList<>();
+        ServiceLoader.load(ProxyPointcutProvider.class, loader).forEach(providers::add);
+        return providers;
+    }
+
+    /**
+     * 为basePackages下所有需要代理的类生成代理类，返回生成的类名
+     */
+    public List<String> generate(Path outputDir, String... basePackages) throws IOException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        List<String> generated = new ArrayList<>();
+        for (String pkg : basePackages) {
+            List<String> classNames = new ResourceResolver(pkg).scan(resource -> {
+                String name = resource.name();
+                if (name.endsWith(".class") && !name.contains(ProxyResolver.PROXY_CLASS_SUFFIX)) {
+                    return name.substring(0, name.length() - 6).replace("/", ".").replace("\\", ".");
+                }
+                return null;
+            });
+            for (String className : classNames) {
+                if (className == null) {
+                    continue;
+                }
+                Class<?> clazz;
+                try {
+                    // 不初始化，避免执行业务类的静态代码
+                    clazz = Class.forName(className, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    logger.atDebug().log("skip class {}: {}", className, e.toString());
+                    continue;
+                }
+                try {
+                    String proxyClassName = generate(clazz, outputDir);
+                    if (proxyClassName != null) {
+                        generated.add(proxyClassName);
+                    }
+                } catch (RuntimeException e) {
+                    // 例如切面配置错误，运行期同样无法代理，交给运行期报错
+                    logger.warn("cannot generate proxy class for {}: {}", className, e.toString());
+                }
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * 生成单个类的代理类，不需要代理或者无法代理时返回null
+     */
+    @Nullable
+    public String generate(Class<?> targetClass, Path outputDir) throws IOException {
+        int mod = targetClass.getModifiers();
+        if (targetClass.isInterface() || targetClass.isEnum() || targetClass.isRecord()
+                || Modifier.isAbstract(mod) || Modifier.isFinal(mod) || Modifier.isPrivate(mod)
+                || (targetClass.isMemberClass() && !Modifier.isStatic(mod))) {
+            return null;
+        }
+        List<MethodMatcher> pointcuts = new ArrayList<>();
+        for (ProxyPointcutProvider provider : this.providers) {
+            pointcuts.addAll(provider.getPointcuts(targetClass));
+        }
+        if (pointcuts.isEmpty()) {
+            return null;
+        }
+        Method[] methods = this.resolver.getProxyMethods(targetClass, Arrays.asList(this.resolver.getMatchedMethods(targetClass, pointcuts)));
+        // class文件版本和被代理类一致，而不是执行构建的JDK版本
+        ByteBuddy byteBuddy = new ByteBuddy(ClassFileVersion.of(targetClass));
+        DynamicType.Unloaded<?> type = this.resolver.makeProxyClass(byteBuddy, targetClass, methods);
+        type.saveIn(outputDir.toFile());
+        String name = type.getTypeDescription().getName();
+        logger.atDebug().log("proxy class {} saved in {}", name, outputDir);
+        return name;
+    }
+}
@@ -0,0 +1,72 @@
+package xyz.xminao.springlet.aop;
+
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 代理实例中保存的分发器，代理类的方法都委托到dispatch()
+ * 每个代理实例一个分发器，绑定原始Bean和该Bean所有切面，每个方法的拦截器链和调用原始Bean的MethodHandle在创建代理时就准备好，
+ * 按代理类中的方法下标存放，代理类中每个方法把自己的下标作为常量传入，调用时不需要查找Map
+ * 代理类覆写所有public方法，没有被拦截的方法拦截器链为空，直接转发到原始Bean
+ */
+public final class ProxyDispatcher {
+
+    final Object target;
+    // 创建代理时使用的切面，用于再次代理时合并
+    final List<Advisor> advisors;
+    // 以下数组按同一个下标对应被拦截的方法
+    final Method[] methods;
+    final MethodInterceptor[][] chains;
+    final MethodHandle[] invokers;
+
+    ProxyDispatcher(Object target, List<Advisor> advisors, Method[] methods, MethodInterceptor[][] chains) {
+        this.target = target;
+        this.advisors = advisors;
+        this.methods = methods;
+        this.chains = chains;
+        this.invokers = new MethodHandle[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            this.invokers[i] = MethodInvocation.invoker(methods[i]);
+        }
+    }
+
+    /**
+     * 被代理的原始Bean
+     */
+    public Object getTarget() {
+        return target;
+    }
+
+    public List<Advisor> getAdvisors() {
+        return advisors;
+    }
+
+    /**
+     * 代理方法的入口，index是生成代理类时写入的方法下标
+     */
+    @RuntimeType
+    public Object dispatch(@MethodIndex int index, @AllArguments Object[] args) throws Throwable {
+        MethodInterceptor[] chain = chains[index];
+        if (chain.length == 0) {
+            // 没有被拦截的方法直接调用原始Bean
+            return invokers[index].invokeExact(target, args);
+        }
+        return new MethodInvocation(target, methods[index], args, chain, invokers[index]).proceed();
+    }
+
+    /**
+     * 标记dispatch()中接收方法下标的参数，生成代理类时绑定为常量
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    @interface MethodIndex {
+    }
+}
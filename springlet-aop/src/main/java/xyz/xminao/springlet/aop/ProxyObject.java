@@ -0,0 +1,18 @@
+package xyz.xminao.springlet.aop;
+
+/**
+ * ProxyResolver生成的代理类都实现该接口
+ * 代理类按Class缓存复用，原始Bean和拦截器不再写死在代理类中，而是创建实例后通过该接口注入到字段
+ */
+public interface ProxyObject {
+
+    /**
+     * 注入当前代理实例使用的分发器
+     */
+    void setProxyDispatcher(ProxyDispatcher dispatcher);
+
+    /**
+     * 获取分发器，可以得到原始Bean和已有的切面
+     */
+    ProxyDispatcher getProxyDispatcher();
+}
@@ -0,0 +1,16 @@
+package xyz.xminao.springlet.aop;
+
+import java.util.List;
+
+/**
+ * 提供某个Class上需要拦截的切点，不依赖容器和拦截器Bean
+ * 构建期预生成代理类时通过ServiceLoader加载（META-INF/services/xyz.xminao.springlet.aop.ProxyPointcutProvider），
+ * 运行期同一个实现作为BeanPostProcessor创建切面，两者得到的被拦截方法一致才能复用预生成的代理类。
+ */
+public interface ProxyPointcutProvider {
+
+    /**
+     * 返回beanClass上的切点，不需要代理则返回空List
+     */
+    List<MethodMatcher> getPointcuts(Class<?> beanClass);
+}
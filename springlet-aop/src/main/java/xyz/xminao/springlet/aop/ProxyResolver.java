@@ -1,72 +1,431 @@
 package xyz.xminao.springlet.aop;
 
 import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.TypeCache;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
-import net.bytebuddy.implementation.InvocationHandlerAdapter;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bind.annotation.TargetMethodAnnotationDrivenBinder;
 import net.bytebuddy.matcher.ElementMatchers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import xyz.xminao.springlet.exception.AopConfigException;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ProxyResolver {
     final Logger logger = LoggerFactory.getLogger(getClass());
 
-    // 用于运行期动态织入字节码，替换CGLIB
-    final ByteBuddy byteBuddy = new ByteBuddy();
+    // 代理类中保存分发器的字段
+    static final String DISPATCHER_FIELD = "$$springlet_dispatcher";
 
-    // 单例模式
-    private static ProxyResolver INSTANCE = null;
+    // 代理类中记录覆写方法签名的常量字段，用于校验预生成的代理类
+    static final String METHODS_FIELD = "$$springlet_methods";
 
-    public static ProxyResolver getInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = new ProxyResolver();
+    // 不被拦截的方法没有拦截器，直接调用原始Bean
+    static final MethodInterceptor[] EMPTY_CHAIN = new MethodInterceptor[0];
+
+    // 代理类名后缀，后面跟被拦截方法签名的hash，构建期和运行期生成的类名一致
+    static final String PROXY_CLASS_SUFFIX = "$$SpringletProxy$$";
+
+    // 按被代理Class和覆写的方法缓存生成的代理类，ClassLoader和代理类都是弱引用，不会阻止卸载
+    // 隐藏的代理类没有实例后被回收，再次创建代理时重新生成
+    final TypeCache<ProxyKey> proxyClassCache = new TypeCache.WithInlineExpunction<>(TypeCache.Sort.WEAK);
+
+    // 按Class缓存每个切点匹配到的方法，并发计算时结果相同，后写入的覆盖即可
+    final ClassValue<Map<MethodMatcher, Method[]>> matchedMethods = new ClassValue<>() {
+        @Override
+        protected Map<MethodMatcher, Method[]> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
         }
-        return INSTANCE;
+    };
+
+    // 按Class缓存所有需要转发到原始Bean的public方法，Object声明的方法除外
+    final ClassValue<Method[]> forwardableMethods = new ClassValue<>() {
+        @Override
+        protected Method[] computeValue(Class<?> type) {
+            List<Method> list = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (isOverridable(method) && method.getDeclaringClass() != Object.class) {
+                    list.add(method);
+                }
+            }
+            return list.toArray(new Method[0]);
+        }
+    };
+
+    // 分配代理实例而不执行任何构造方法，隐藏类无法通过名字引用，不能使用序列化构造方法生成的访问器
+    // 只能使用Unsafe.allocateInstance()，通过反射获取，编译期不引用sun.misc.Unsafe
+    static final MethodHandle ALLOCATE_INSTANCE = allocateInstanceHandle();
+
+    // 单例模式，由JVM保证Holder类只初始化一次，并发获取不需要加锁
+    private static class InstanceHolder {
+        static final ProxyResolver INSTANCE = new ProxyResolver();
+    }
+
+    public static ProxyResolver getInstance() {
+        return InstanceHolder.INSTANCE;
     }
 
     public ProxyResolver() {
     }
 
     /**
-     * 创建代理
+     * 创建代理，使用InvocationHandler作为拦截器
+     * 同一个Class只生成一次代理类，之后创建代理只需调用构造方法并注入拦截器
      * @param bean 被代理的原始Bean
      * @param handler 拦截器
      * @return 代理Bean
      * @param <T>
      */
-    @SuppressWarnings("unchecked")
     public <T> T createProxy(T bean, InvocationHandler handler) {
-        Class<?> targetClass = bean.getClass();
-        logger.atDebug().log("create proxy for bean {} @{}", targetClass.getName(), Integer.toHexString(bean.hashCode()));
-        Class<?> proxyClass = this.byteBuddy
-                // 创建一个指定类targetClass的子类，也就是指定一个基类
-                .subclass(targetClass, ConstructorStrategy.Default.DEFAULT_CONSTRUCTOR)
-                // 要拦截方法的拦截条件，这里指定了所有public方法
-                .method(ElementMatchers.isPublic())
-                // 指定要拦截到的方法要修改成什么样子，拦截设置返回值
-                .intercept(InvocationHandlerAdapter.of(
-                        // 这里创建一个新的拦截器实例，实现使用Java自带的InvocationHandler作为ByteBuddy的拦截器
-                        // proxy method invoke:
-                        // proxy是Proxy实例
-                        (proxy, method, args) -> {
-                            // delegate to origin bean:
-                            // 将调用转发至原始实例
-                            return handler.invoke(bean, method, args);
-                        }))
-                // generate proxy class:
-                .make()
-                // 加载字节码
-                .load(targetClass.getClassLoader()).getLoaded();
-        Object proxy;
+        return createProxy(bean, handler, MethodMatcher.ALL);
+    }
+
+    /**
+     * 创建代理，只拦截matcher匹配的方法，其他方法不被代理类覆写
+     */
+    public <T> T createProxy(T bean, InvocationHandler handler, MethodMatcher matcher) {
+        return createProxy(bean, List.of(Advisor.of(matcher, handler, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * 创建代理，使用MethodInterceptor作为拦截器，拦截器通过MethodInvocation直接调用原始Bean
+     */
+    public <T> T createProxy(T bean, MethodInterceptor interceptor) {
+        return createProxy(bean, interceptor, MethodMatcher.ALL);
+    }
+
+    public <T> T createProxy(T bean, MethodInterceptor interceptor, MethodMatcher matcher) {
+        return createProxy(bean, List.of(new Advisor(matcher, interceptor, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * 根据一组切面创建代理
+     * 如果bean已经是ProxyResolver创建的代理，则和已有切面合并，基于原始Bean重新创建一个代理，而不是代理的代理
+     * 代理类覆写的方法和切面无关，合并后通常复用同一个代理类，只创建新的实例和分发器
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(T bean, List<Advisor> advisors) {
+        Object target = bean;
+        List<Advisor> all = advisors;
+        if (bean instanceof ProxyObject proxyObject) {
+            ProxyDispatcher existing = proxyObject.getProxyDispatcher();
+            target = existing.getTarget();
+            all = new ArrayList<>(existing.getAdvisors());
+            all.addAll(advisors);
+        }
+        // 按order排序，order相同保持添加顺序
+        all = all.stream().sorted(Comparator.comparingInt(Advisor::order)).toList();
+        Class<?> targetClass = target.getClass();
+        logger.atDebug().log("create proxy for bean {} @{}", targetClass.getName(), Integer.toHexString(target.hashCode()));
+
+        // 编译每个方法的拦截器链
+        Map<Method, List<MethodInterceptor>> chainLists = new LinkedHashMap<>();
+        for (Advisor advisor : all) {
+            for (Method method : getMatchedMethods(targetClass, advisor.matcher())) {
+                chainLists.computeIfAbsent(method, m -> new ArrayList<>()).add(advisor.interceptor());
+            }
+        }
+        // 下标和代理类中写入的方法下标一致
+        Method[] methods = getProxyMethods(targetClass, chainLists.keySet());
+        MethodInterceptor[][] chains = new MethodInterceptor[methods.length][];
+        for (int i = 0; i < methods.length; i++) {
+            List<MethodInterceptor> list = chainLists.get(methods[i]);
+            chains[i] = list == null ? EMPTY_CHAIN : toChain(methods[i], list);
+        }
+
+        Class<?> proxyClass = getProxyClass(targetClass, methods);
+        Object proxy = newProxyInstance(proxyClass);
+        // proxy method invoke:
+        // 将调用转发至原始实例
+        ((ProxyObject) proxy).setProxyDispatcher(new ProxyDispatcher(target, all, methods, chains));
+        return (T) proxy;
+    }
+
+    /**
+     * 创建代理实例，不调用被代理类的任何构造方法
+     * 代理实例只负责转发，字段不会被使用，所以不需要执行原始构造方法中的初始化逻辑，只有注入构造方法的Bean也可以被代理
+     * 前提是代理类覆写了所有public方法并转发到原始Bean（见getProxyMethods()），否则继承的方法会读到未初始化的字段
+     */
+    Object newProxyInstance(Class<?> proxyClass) {
         try {
-            proxy = proxyClass.getConstructor().newInstance();
-        } catch (RuntimeException e) {
+            return (Object) ALLOCATE_INSTANCE.invokeExact(proxyClass);
+        } catch (RuntimeException | Error e) {
             throw e;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        } catch (Throwable e) {
+            throw new AopConfigException("Failed to instantiate proxy class " + proxyClass.getName(), e);
+        }
+    }
+
+    /**
+     * 绑定到Unsafe实例的allocateInstance()，类型为 (Class)Object
+     */
+    static MethodHandle allocateInstanceHandle() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.publicLookup()
+                    .findVirtual(unsafeClass, "allocateInstance", MethodType.methodType(Object.class, Class.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * InvocationHandler直接调用原始Bean，不会继续调用后面的拦截器，所以放在链的最内层，且每个方法最多一个
+     */
+    MethodInterceptor[] toChain(Method method, List<MethodInterceptor> list) {
+        List<MethodInterceptor> chain = new ArrayList<>(list.size());
+        MethodInterceptor handler = null;
+        for (MethodInterceptor interceptor : list) {
+            if (interceptor instanceof InvocationHandlerInterceptor) {
+                if (handler != null) {
+                    throw new AopConfigException("More than one InvocationHandler applied to method " + method);
+                }
+                handler = interceptor;
+            } else {
+                chain.add(interceptor);
+            }
+        }
+        if (handler != null) {
+            chain.add(handler);
+        }
+        return chain.toArray(new MethodInterceptor[0]);
+    }
+
+    /**
+     * 获取targetClass中matcher匹配的、可以被子类覆写的public方法，结果按Class和matcher缓存
+     */
+    Method[] getMatchedMethods(Class<?> targetClass, MethodMatcher matcher) {
+        Map<MethodMatcher, Method[]> cache = this.matchedMethods.get(targetClass);
+        Method[] methods = cache.get(matcher);
+        if (methods == null) {
+            List<Method> list = new ArrayList<>();
+            for (Method method : targetClass.getMethods()) {
+                if (isOverridable(method) && matcher.matches(method, targetClass)) {
+                    list.add(method);
+                }
+            }
+            methods = list.toArray(new Method[0]);
+            cache.put(matcher, methods);
+        }
+        return methods;
+    }
+
+    static boolean isOverridable(Method method) {
+        int mod = method.getModifiers();
+        return !Modifier.isStatic(mod) && !Modifier.isFinal(mod) && !method.isBridge();
+    }
+
+    /**
+     * 代理类覆写的全部方法，按签名排序，即代理类中的方法下标：所有可以覆写的public方法，以及被拦截的Object方法
+     * 没有被拦截的方法也必须覆写并转发到原始Bean，否则会在没有初始化的代理实例上执行原始实现；
+     * 覆写的方法和切面无关，同一个Class的代理只要拦截的Object方法相同就共用一个代理类，合并切面不会生成新的代理类
+     */
+    Method[] getProxyMethods(Class<?> targetClass, Collection<Method> intercepted) {
+        Set<Method> methods = new LinkedHashSet<>(Arrays.asList(this.forwardableMethods.get(targetClass)));
+        methods.addAll(intercepted);
+        return ProxyKey.sort(methods.toArray(new Method[0]));
+    }
+
+    /**
+     * 多个切点匹配到的方法的并集，顺序和切点顺序一致
+     */
+    Method[] getMatchedMethods(Class<?> targetClass, Collection<MethodMatcher> matchers) {
+        Set<Method> methods = new LinkedHashSet<>();
+        for (MethodMatcher matcher : matchers) {
+            methods.addAll(Arrays.asList(getMatchedMethods(targetClass, matcher)));
+        }
+        return methods.toArray(new Method[0]);
+    }
+
+    /**
+     * 获取targetClass的代理类，methods为getProxyMethods()返回的覆写方法，优先使用构建期预生成的代理类，不存在则运行期生成
+     * 不加锁：并发时同一个key可能生成多次，但只有先插入缓存的类会被所有线程使用
+     */
+    Class<?> getProxyClass(Class<?> targetClass, Method[] methods) {
+        ProxyKey key = ProxyKey.of(targetClass, methods);
+        return this.proxyClassCache.findOrInsert(targetClass.getClassLoader(), key, () -> {
+            Class<?> proxyClass = loadPrecompiledProxyClass(targetClass, key);
+            return proxyClass != null ? proxyClass : generateProxyClass(targetClass, methods);
+        });
+    }
+
+    /**
+     * 从targetClass的ClassLoader中查找预生成的代理类，不存在或覆写的方法不一致时返回null
+     */
+    Class<?> loadPrecompiledProxyClass(Class<?> targetClass, ProxyKey key) {
+        ClassLoader loader = targetClass.getClassLoader();
+        if (loader == null) {
+            return null;
+        }
+        Class<?> proxyClass;
+        try {
+            proxyClass = Class.forName(key.proxyClassName(), false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        if (proxyClass.getSuperclass() != targetClass || !ProxyObject.class.isAssignableFrom(proxyClass)
+                || !key.signatures().equals(getMethodSignatures(proxyClass))) {
+            // 类名hash冲突或者预生成时切点不同，例如类路径上的BeanPostProcessor不一致
+            logger.warn("ignore mismatched precompiled proxy class {}", proxyClass.getName());
+            return null;
+        }
+        logger.atDebug().log("use precompiled proxy class {}", proxyClass.getName());
+        return proxyClass;
+    }
+
+    /**
+     * 生成代理类时写入的覆写方法签名，读取失败返回null
+     */
+    static String getMethodSignatures(Class<?> proxyClass) {
+        try {
+            Field field = proxyClass.getDeclaredField(METHODS_FIELD);
+            field.setAccessible(true);
+            return (String) field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 运行期生成代理类，优先定义为隐藏类
+     * 隐藏类不会被ClassLoader引用，所有代理实例都被回收后即可卸载，刷新容器不会让Metaspace一直增长；
+     * 无法获得被代理类所在模块的完整访问权限时（例如被代理类由其他ClassLoader加载），退回由ClassLoader加载的普通类
+     */
+    Class<?> generateProxyClass(Class<?> targetClass, Method[] methods) {
+        DynamicType.Unloaded<?> type = makeProxyClass(ByteBuddyHolder.BYTE_BUDDY, targetClass, methods);
+        MethodHandles.Lookup lookup = hiddenClassLookup(targetClass);
+        if (lookup != null && !type.hasAliveLoadedTypeInitializers()) {
+            try {
+                return lookup.defineHiddenClass(type.getBytes(), true).lookupClass();
+            } catch (IllegalAccessException | LinkageError e) {
+                logger.atDebug().log("cannot define hidden proxy class for {}: {}", targetClass.getName(), e.toString());
+            }
+        }
+        // 加载字节码
+        return type.load(targetClass.getClassLoader()).getLoaded();
+    }
+
+    /**
+     * 获取被代理类所在包的Lookup，没有定义隐藏类所需的完整访问权限时返回null
+     */
+    MethodHandles.Lookup hiddenClassLookup(Class<?> targetClass) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(targetClass, MethodHandles.lookup());
+            return lookup.hasFullPrivilegeAccess() ? lookup : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 生成代理类的字节码，运行期直接加载，构建期写入class文件
+     * methods为getProxyMethods()返回的覆写方法，数组下标即dispatch()收到的方法下标
+     */
+    DynamicType.Unloaded<?> makeProxyClass(ByteBuddy byteBuddy, Class<?> targetClass, Method[] methods) {
+        logger.atDebug().log("generate proxy class for {}, override methods: {}", targetClass.getName(), Arrays.toString(methods));
+        ProxyKey key = ProxyKey.of(targetClass, methods);
+        DynamicType.Builder<?> builder = byteBuddy
+                // 创建一个指定类targetClass的子类，也就是指定一个基类
+                // 不定义构造方法，实例通过Unsafe.allocateInstance()创建，被代理类不需要无参构造方法
+                .subclass(targetClass, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+                // 固定类名，运行期才能找到构建期生成的类
+                .name(key.proxyClassName())
+                // 覆写方法的签名，常量保存在常量池中，不需要类初始化
+                .defineField(METHODS_FIELD, String.class, Visibility.PRIVATE, Ownership.STATIC, FieldManifestation.FINAL)
+                .value(key.signatures())
+                // 保存分发器的字段，每个代理实例单独注入
+                .defineField(DISPATCHER_FIELD, ProxyDispatcher.class, Visibility.PRIVATE);
+        for (int i = 0; i < methods.length; i++) {
+            builder = builder
+                    // 覆写所有public方法：切点匹配到的方法经过拦截器链，其他方法直接转发到原始Bean
+                    .method(ElementMatchers.is(methods[i]))
+                    // 直接调用字段中分发器的dispatch()，方法的下标作为常量传入，不经过InvocationHandlerAdapter
+                    .intercept(MethodDelegation.withDefaultConfiguration()
+                            .withBinders(TargetMethodAnnotationDrivenBinder.ParameterBinder.ForFixedValue.OfConstant.of(ProxyDispatcher.MethodIndex.class, i))
+                            .toField(DISPATCHER_FIELD));
+        }
+        return builder
+                // 实现ProxyObject，用于注入分发器
+                .implement(ProxyObject.class)
+                .intercept(FieldAccessor.ofField(DISPATCHER_FIELD))
+                // generate proxy class:
+                .make();
+    }
+
+    /**
+     * 用于动态织入字节码，替换CGLIB
+     * 只有需要生成代理类时才创建，全部使用预生成代理类时不会初始化ByteBuddy的字节码生成部分
+     */
+    static class ByteBuddyHolder {
+        static final ByteBuddy BYTE_BUDDY = new ByteBuddy();
+    }
+
+    /**
+     * 代理类的缓存key：被代理Class和覆写的方法
+     * 只保存名字而不是Class引用，避免缓存阻止ClassLoader卸载
+     */
+    record ProxyKey(String targetClassName, List<String> methods) {
+
+        static ProxyKey of(Class<?> targetClass, Method[] methods) {
+            List<String> signatures = new ArrayList<>(methods.length);
+            for (Method method : methods) {
+                signatures.add(signature(method));
+            }
+            signatures.sort(null);
+            return new ProxyKey(targetClass.getName(), signatures);
+        }
+
+        /**
+         * 按签名排序后的方法，即代理类中方法下标的顺序，构建期和运行期一致
+         */
+        static Method[] sort(Method[] methods) {
+            Method[] sorted = methods.clone();
+            Arrays.sort(sorted, Comparator.comparing(ProxyKey::signature));
+            return sorted;
+        }
+
+        static String signature(Method method) {
+            StringBuilder sb = new StringBuilder(method.getName()).append('(');
+            for (Class<?> type : method.getParameterTypes()) {
+                sb.append(type.getName()).append(',');
+            }
+            return sb.append(')').toString();
+        }
+
+        String signatures() {
+            return String.join(";", methods);
+        }
+
+        /**
+         * 代理类名：被代理类名 + 后缀 + 方法签名的hash，String.hashCode()的算法是固定的，不同JVM结果一致
+         */
+        String proxyClassName() {
+            return targetClassName + PROXY_CLASS_SUFFIX + Integer.toHexString(signatures().hashCode());
         }
-        return (T) proxy;
     }
 }
@@ -0,0 +1,49 @@
+package xyz.xminao.springlet.aop.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * 拦截返回CompletionStage（如CompletableFuture）的方法时，让拦截器在异步结果完成后才结束
+ */
+public class AsyncSupport {
+
+    /**
+     * 方法的返回值是否是异步结果
+     */
+    public static boolean isAsync(Object result) {
+        return result instanceof CompletionStage;
+    }
+
+    /**
+     * 方法声明的返回类型是否是异步类型
+     */
+    public static boolean isAsyncMethod(Method method) {
+        return CompletionStage.class.isAssignableFrom(method.getReturnType());
+    }
+
+    /**
+     * 异步结果完成后执行action，返回在action执行完之后才完成的新结果，调用方看到完成时拦截器的收尾工作（如提交事务）已经结束；
+     * action抛出异常时新结果以该异常失败。新结果的类型和方法返回类型不兼容时（自定义的CompletionStage子类）返回原结果。
+     * action收到的异常已经去掉CompletionException包装。
+     */
+    @SuppressWarnings("unchecked")
+    public static Object whenComplete(Method method, CompletionStage<?> stage, BiConsumer<Object, Throwable> action) {
+        CompletionStage<Object> dependent = ((CompletionStage<Object>) stage).whenComplete(
+                (value, error) -> action.accept(value, error == null ? null : unwrap(error)));
+        return method.getReturnType().isInstance(dependent) ? dependent : stage;
+    }
+
+    /**
+     * 去掉CompletionException和ExecutionException包装
+     */
+    public static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,53 @@
+package xyz.xminao.springlet.aop.async;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * 管理所有ContextPropagator，捕获当前线程的上下文，或者包装Executor让提交的任务自动带上提交线程的上下文：
+ * <pre>
+ * Executor executor = ContextPropagation.wrap(Executors.newFixedThreadPool(4));
+ * return CompletableFuture.supplyAsync(() -> jdbcTemplate.queryForObject(...), executor);
+ * </pre>
+ */
+public class ContextPropagation {
+
+    static final List<ContextPropagator> propagators = new CopyOnWriteArrayList<>();
+
+    static {
+        ServiceLoader.load(ContextPropagator.class, ContextPropagation.class.getClassLoader()).forEach(propagators::add);
+    }
+
+    public static void register(ContextPropagator propagator) {
+        propagators.add(propagator);
+    }
+
+    public static void unregister(ContextPropagator propagator) {
+        propagators.remove(propagator);
+    }
+
+    public static List<ContextPropagator> getPropagators() {
+        return List.copyOf(propagators);
+    }
+
+    /**
+     * 捕获当前线程的上下文
+     */
+    public static ContextSnapshot capture() {
+        List<ContextPropagator> list = getPropagators();
+        Object[] values = new Object[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = list.get(i).capture();
+        }
+        return new ContextSnapshot(list, values);
+    }
+
+    /**
+     * 包装Executor，任务在提交时捕获上下文，执行时恢复
+     */
+    public static Executor wrap(Executor executor) {
+        return command -> executor.execute(capture().wrap(command));
+    }
+}
@@ -0,0 +1,23 @@
+package xyz.xminao.springlet.aop.async;
+
+/**
+ * 在线程之间传递ThreadLocal上下文（如事务、MDC）的SPI
+ * 通过ServiceLoader加载（META-INF/services/xyz.xminao.springlet.aop.async.ContextPropagator），也可以通过ContextPropagation.register()注册。
+ */
+public interface ContextPropagator {
+
+    /**
+     * 在提交任务的线程中捕获当前上下文，没有上下文时可以返回null
+     */
+    Object capture();
+
+    /**
+     * 在执行任务的线程中恢复捕获的上下文，返回该线程原来的上下文
+     */
+    Object restore(Object captured);
+
+    /**
+     * 任务结束后还原为restore()返回的原来的上下文
+     */
+    void reset(Object previous);
+}
@@ -0,0 +1,76 @@
+package xyz.xminao.springlet.aop.async;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 某一时刻所有ContextPropagator捕获的上下文，可以在其他线程中恢复
+ */
+public class ContextSnapshot {
+
+    final List<ContextPropagator> propagators;
+    final Object[] values;
+
+    ContextSnapshot(List<ContextPropagator> propagators, Object[] values) {
+        this.propagators = propagators;
+        this.values = values;
+    }
+
+    /**
+     * 在当前线程恢复上下文，关闭Scope时还原
+     */
+    public Scope open() {
+        Object[] previous = new Object[this.values.length];
+        for (int i = 0; i < this.values.length; i++) {
+            previous[i] = this.propagators.get(i).restore(this.values[i]);
+        }
+        return () -> {
+            // 按恢复的相反顺序还原
+            for (int i = previous.length - 1; i >= 0; i--) {
+                this.propagators.get(i).reset(previous[i]);
+            }
+        };
+    }
+
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            try (Scope ignored = open()) {
+                task.run();
+            }
+        };
+    }
+
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            try (Scope ignored = open()) {
+                return task.call();
+            }
+        };
+    }
+
+    public <T> Supplier<T> wrap(Supplier<T> task) {
+        return () -> {
+            try (Scope ignored = open()) {
+                return task.get();
+            }
+        };
+    }
+
+    public <T, R> Function<T, R> wrap(Function<T, R> task) {
+        return t -> {
+            try (Scope ignored = open()) {
+                return task.apply(t);
+            }
+        };
+    }
+
+    /**
+     * 恢复的上下文的作用范围，close()不抛出受检异常
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,37 @@
+package xyz.xminao.springlet.aop.async;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+
+/**
+ * 传递slf4j的MDC
+ */
+public class MdcContextPropagator implements ContextPropagator {
+
+    @Override
+    public Object capture() {
+        return MDC.getCopyOfContextMap();
+    }
+
+    @Override
+    public Object restore(Object captured) {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        set(captured);
+        return previous;
+    }
+
+    @Override
+    public void reset(Object previous) {
+        set(previous);
+    }
+
+    @SuppressWarnings("unchecked")
+    void set(Object context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap((Map<String, String>) context);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package xyz.xminao.springlet.aop.cache;
+
+/**
+ * @Cacheable等注解使用的缓存
+ * 缓存名相同的Cache类型Bean会替换内置的TinyLfuCache，自定义实现需要保证线程安全。
+ * value不能为null，方法返回null时由拦截器转换为占位对象后再放入缓存。
+ */
+public interface Cache {
+
+    String getName();
+
+    /**
+     * 获取缓存值，不存在或已过期返回null
+     */
+    Object getIfPresent(Object key);
+
+    /**
+     * 获取缓存值，不存在时调用loader加载并放入缓存
+     */
+    Object get(Object key, CacheLoader loader) throws Throwable;
+
+    void put(Object key, Object value);
+
+    void evict(Object key);
+
+    void clear();
+
+    CacheStats getStats();
+}
@@ -0,0 +1,94 @@
+package xyz.xminao.springlet.aop.cache;
+
+import xyz.xminao.springlet.annotation.CacheEvict;
+import xyz.xminao.springlet.annotation.CachePut;
+import xyz.xminao.springlet.annotation.Cacheable;
+import xyz.xminao.springlet.aop.AbstractAdvisingBeanPostProcessor;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.MethodMatcher;
+import xyz.xminao.springlet.context.ApplicationContext;
+import xyz.xminao.springlet.context.ApplicationContextUtils;
+import xyz.xminao.springlet.context.BeanDefinition;
+import xyz.xminao.springlet.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 拦截标注了@Cacheable、@CachePut或@CacheEvict的方法
+ * 缓存按名字查找：容器中存在同名的Cache类型Bean时使用该Bean，否则使用defaultCacheFactory创建的缓存（默认最多10000条的TinyLfuCache）。
+ * 在@Timed内层、事务外层，命中缓存时不开启事务。
+ */
+public class CacheBeanPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    static final MethodMatcher cacheMatcher = (method, targetClass) -> method.isAnnotationPresent(Cacheable.class)
+            || method.isAnnotationPresent(CachePut.class) || method.isAnnotationPresent(CacheEvict.class);
+
+    final Map<String, Cache> caches = new ConcurrentHashMap<>();
+    final Function<String, Cache> defaultCacheFactory;
+    final Advisor advisor;
+
+    public CacheBeanPostProcessor() {
+        this(name -> TinyLfuCache.builder(name).maximumSize(DEFAULT_MAXIMUM_SIZE).build());
+    }
+
+    public CacheBeanPostProcessor(Function<String, Cache> defaultCacheFactory) {
+        this.defaultCacheFactory = defaultCacheFactory;
+        this.advisor = new Advisor(cacheMatcher, new CacheInterceptor(this::getCache), 0);
+    }
+
+    @Override
+    public List<MethodMatcher> getPointcuts(Class<?> beanClass) {
+        return hasCacheMethod(beanClass) ? List.of(cacheMatcher) : List.of();
+    }
+
+    @Override
+    protected List<Advisor> getAdvisors(Class<?> beanClass, String beanName) {
+        return hasCacheMethod(beanClass) ? List.of(this.advisor) : List.of();
+    }
+
+    boolean hasCacheMethod(Class<?> beanClass) {
+        for (Method method : beanClass.getMethods()) {
+            if (cacheMatcher.matches(method, beanClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 手动注册缓存，优先于容器中的Bean和默认缓存
+     */
+    public void registerCache(Cache cache) {
+        this.caches.put(cache.getName(), cache);
+    }
+
+    public Cache getCache(String name) {
+        Cache cache = this.caches.get(name);
+        if (cache == null) {
+            // 查找Bean时可能创建其他Bean，不能在computeIfAbsent中执行
+            Cache resolved = resolveCache(name);
+            cache = this.caches.putIfAbsent(name, resolved);
+            if (cache == null) {
+                cache = resolved;
+            }
+        }
+        return cache;
+    }
+
+    Cache resolveCache(String name) {
+        ApplicationContext ctx = ApplicationContextUtils.getApplicationContext();
+        if (ctx instanceof ConfigurableApplicationContext configurable) {
+            BeanDefinition def = configurable.findBeanDefinition(name);
+            if (def != null && Cache.class.isAssignableFrom(def.getBeanClass())) {
+                return (Cache) getHandlerBean(name);
+            }
+        }
+        return this.defaultCacheFactory.apply(name);
+    }
+}
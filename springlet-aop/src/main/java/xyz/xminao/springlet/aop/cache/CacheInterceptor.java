@@ -0,0 +1,117 @@
+package xyz.xminao.springlet.aop.cache;
+
+import xyz.xminao.springlet.annotation.CacheEvict;
+import xyz.xminao.springlet.annotation.CachePut;
+import xyz.xminao.springlet.annotation.Cacheable;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.MethodInvocation;
+import xyz.xminao.springlet.aop.async.AsyncSupport;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 处理@Cacheable、@CachePut和@CacheEvict的拦截器，每个方法的注解和Cache只解析一次
+ * 返回CompletionStage的方法缓存异步结果本身，异步结果失败时从缓存中移除
+ */
+public class CacheInterceptor implements MethodInterceptor {
+
+    // 方法返回null时放入缓存的占位对象
+    static final Object NULL_VALUE = new Object();
+
+    final Function<String, Cache> cacheResolver;
+    final Map<Method, CacheOperation> operations = new ConcurrentHashMap<>();
+
+    public CacheInterceptor(Function<String, Cache> cacheResolver) {
+        this.cacheResolver = cacheResolver;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        CacheOperation op = getOperation(invocation.getMethod());
+        // 先生成key，原始方法可能修改参数
+        Object key = SimpleKey.generateKey(invocation.getArguments());
+        if (op.evict() != null && op.beforeInvocation()) {
+            evict(op, key);
+        }
+        Object result;
+        if (op.cacheable() != null) {
+            // 没有调用过的invocation可以复制后多次调用，用于首次加载和之后的异步刷新
+            Cache cache = op.cacheable();
+            result = fromStoreValue(cache.get(key, k -> toStoreValue(evictOnFailure(cache, k, invocation.invocableClone().proceed()))));
+            if (result instanceof CompletableFuture<?> future) {
+                // 缓存的CompletableFuture被多个调用方共享，返回副本避免调用方取消或修改缓存的结果
+                CompletableFuture<?> copy = future.copy();
+                if (invocation.getMethod().getReturnType().isInstance(copy)) {
+                    result = copy;
+                }
+            }
+        } else {
+            result = invocation.proceed();
+            if (op.put() != null) {
+                op.put().put(key, toStoreValue(evictOnFailure(op.put(), key, result)));
+            }
+        }
+        if (op.evict() != null && !op.beforeInvocation()) {
+            evict(op, key);
+        }
+        return result;
+    }
+
+    static Object evictOnFailure(Cache cache, Object key, Object value) {
+        if (AsyncSupport.isAsync(value)) {
+            ((CompletionStage<?>) value).whenComplete((v, e) -> {
+                if (e != null) {
+                    cache.evict(key);
+                }
+            });
+        }
+        return value;
+    }
+
+    void evict(CacheOperation op, Object key) {
+        if (op.allEntries()) {
+            op.evict().clear();
+        } else {
+            op.evict().evict(key);
+        }
+    }
+
+    CacheOperation getOperation(Method method) {
+        CacheOperation op = this.operations.get(method);
+        if (op == null) {
+            op = this.operations.computeIfAbsent(method, this::parseOperation);
+        }
+        return op;
+    }
+
+    CacheOperation parseOperation(Method method) {
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        CachePut put = method.getAnnotation(CachePut.class);
+        CacheEvict evict = method.getAnnotation(CacheEvict.class);
+        return new CacheOperation(
+                cacheable == null ? null : this.cacheResolver.apply(cacheable.value()),
+                put == null ? null : this.cacheResolver.apply(put.value()),
+                evict == null ? null : this.cacheResolver.apply(evict.value()),
+                evict != null && evict.allEntries(),
+                evict != null && evict.beforeInvocation());
+    }
+
+    static Object toStoreValue(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    static Object fromStoreValue(Object value) {
+        return value == NULL_VALUE ? null : value;
+    }
+
+    /**
+     * 一个方法上的缓存操作，没有对应注解的Cache为null
+     */
+    record CacheOperation(Cache cacheable, Cache put, Cache evict, boolean allEntries, boolean beforeInvocation) {
+    }
+}
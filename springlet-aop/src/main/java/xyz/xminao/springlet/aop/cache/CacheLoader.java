@@ -0,0 +1,10 @@
+package xyz.xminao.springlet.aop.cache;
+
+/**
+ * 缓存不存在或需要刷新时加载值
+ */
+@FunctionalInterface
+public interface CacheLoader {
+
+    Object load(Object key) throws Throwable;
+}
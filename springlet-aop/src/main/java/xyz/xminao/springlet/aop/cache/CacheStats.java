@@ -0,0 +1,23 @@
+package xyz.xminao.springlet.aop.cache;
+
+/**
+ * 缓存统计信息
+ * @param hitCount 命中次数
+ * @param missCount 未命中次数
+ * @param loadSuccessCount 加载（包括刷新）成功次数
+ * @param loadFailureCount 加载失败次数
+ * @param evictionCount 因容量被淘汰的条目数，不包括过期和主动删除
+ * @param evictionWeight 因容量被淘汰的总权重
+ */
+public record CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+                         long evictionCount, long evictionWeight) {
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
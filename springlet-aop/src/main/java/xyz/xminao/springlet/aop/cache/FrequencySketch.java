@@ -0,0 +1,97 @@
+package xyz.xminao.springlet.aop.cache;
+
+/**
+ * TinyLFU使用的Count-Min Sketch，估算key最近的访问频率
+ *
+ * 每个long保存16个4位计数器，每个key在同一个long中选4个计数器，取最小值作为频率。
+ * 记录次数达到采样数（10倍容量）后所有计数器减半，让历史频率逐渐衰减。
+ * 非线程安全，只在TinyLfuCache持有淘汰锁时访问。
+ */
+class FrequencySketch {
+
+    static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    static final long RESET_MASK = 0x7777777777777777L;
+    static final long ONE_MASK = 0x1111111111111111L;
+    static final int MAXIMUM_CAPACITY = 1 << 24;
+
+    long[] table = new long[0];
+    int tableMask;
+    int sampleSize;
+    int size;
+
+    /**
+     * 按预计的条目数调整大小，变大时丢弃已有计数
+     */
+    void ensureCapacity(long maximumSize) {
+        int capacity = (int) Math.min(Math.max(maximumSize, 16), MAXIMUM_CAPACITY);
+        if (this.table.length >= capacity) {
+            return;
+        }
+        this.table = new long[ceilingPowerOfTwo(capacity)];
+        this.tableMask = this.table.length - 1;
+        this.sampleSize = 10 * capacity;
+        this.size = 0;
+    }
+
+    int frequency(Object e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((this.table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++this.size == this.sampleSize) {
+            reset();
+        }
+    }
+
+    boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((this.table[i] & mask) != mask) {
+            this.table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    void reset() {
+        int count = 0;
+        for (int i = 0; i < this.table.length; i++) {
+            count += Long.bitCount(this.table[i] & ONE_MASK);
+            this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+        }
+        this.size = (this.size - (count >>> 2)) >>> 1;
+    }
+
+    int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & this.tableMask;
+    }
+
+    static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+}
@@ -0,0 +1,50 @@
+package xyz.xminao.springlet.aop.cache;
+
+import java.util.Arrays;
+
+/**
+ * 由多个方法参数组成的缓存key
+ */
+public final class SimpleKey {
+
+    public static final SimpleKey EMPTY = new SimpleKey();
+
+    final Object[] params;
+    final int hashCode;
+
+    public SimpleKey(Object... params) {
+        this.params = params.clone();
+        this.hashCode = Arrays.deepHashCode(this.params);
+    }
+
+    /**
+     * 无参数时返回EMPTY，只有一个非数组参数时直接使用该参数，否则组合成SimpleKey
+     */
+    public static Object generateKey(Object[] args) {
+        if (args.length == 0) {
+            return EMPTY;
+        }
+        if (args.length == 1) {
+            Object param = args[0];
+            if (param != null && !param.getClass().isArray()) {
+                return param;
+            }
+        }
+        return new SimpleKey(args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof SimpleKey other && Arrays.deepEquals(this.params, other.params));
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "SimpleKey " + Arrays.deepToString(params);
+    }
+}
@@ -0,0 +1,82 @@
+package xyz.xminao.springlet.aop.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 记录读操作的分段环形缓冲区
+ *
+ * 读操作只需要把访问记录放入当前线程对应的段，不获取淘汰锁；段满或CAS失败时直接丢弃记录，
+ * 对LFU的频率统计影响很小。持有淘汰锁的线程批量取出记录，更新频率和LRU顺序。
+ */
+class StripedReadBuffer<E> {
+
+    static final int BUFFER_SIZE = 16;
+    static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    final Stripe<E>[] stripes;
+    final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    StripedReadBuffer() {
+        int count = FrequencySketch.ceilingPowerOfTwo(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * 放入一条读记录，返回true表示该段已满，应该尽快清空
+     */
+    boolean offer(E e) {
+        int h = Thread.currentThread().hashCode() * 0x9E3779B9;
+        return this.stripes[(h ^ (h >>> 16)) & this.stripeMask].offer(e);
+    }
+
+    /**
+     * 取出所有段中的记录，调用方必须持有淘汰锁
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : this.stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    static final class Stripe<E> {
+        final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+        final AtomicLong writeCounter = new AtomicLong();
+        // 只由持有淘汰锁的线程写入
+        volatile long readCounter;
+
+        boolean offer(E e) {
+            long head = this.readCounter;
+            long tail = this.writeCounter.get();
+            if (tail - head >= BUFFER_SIZE) {
+                return true;
+            }
+            if (this.writeCounter.compareAndSet(tail, tail + 1)) {
+                this.buffer.lazySet((int) (tail & BUFFER_MASK), e);
+            }
+            return false;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = this.readCounter;
+            long tail = this.writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & BUFFER_MASK);
+                E e = this.buffer.get(index);
+                if (e == null) {
+                    // 写入计数已增加但元素还没放入，下次再取
+                    break;
+                }
+                this.buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            this.readCounter = head;
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package xyz.xminao.springlet.aop.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 内置的并发内存缓存，使用W-TinyLFU淘汰策略
+ *
+ * 新条目先进入占容量1%的窗口LRU，从窗口淘汰的条目作为候选进入主区域的SLRU（probation + protected），
+ * 主区域满时比较候选和probation中最老条目的访问频率（FrequencySketch估算），频率高的留下。
+ * 读操作只写入分段读缓冲区，由获得淘汰锁的线程批量更新频率和LRU顺序；写操作在淘汰锁内更新淘汰策略。
+ *
+ * 支持按条目数或权重限制大小、写入后过期（读取时检查）以及写入后异步刷新（需要通过get(key, loader)读取）。
+ */
+public class TinyLfuCache implements Cache {
+
+    static final Logger logger = LoggerFactory.getLogger(TinyLfuCache.class);
+
+    static final int NONE = -1;
+    static final int WINDOW = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+
+    static final double WINDOW_PERCENT = 0.01;
+    static final double PROTECTED_PERCENT = 0.8;
+
+    final String name;
+    final long maximum;
+    final Weigher weigher;
+    final long expireAfterWriteNanos;
+    final long refreshAfterWriteNanos;
+    final Executor executor;
+
+    final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+    final StripedReadBuffer<Node> readBuffer = new StripedReadBuffer<>();
+    final ReentrantLock evictionLock = new ReentrantLock();
+    final Consumer<Node> onAccess = this::onAccess;
+
+    // 以下字段只在持有evictionLock时访问
+    final FrequencySketch sketch = new FrequencySketch();
+    final AccessOrderDeque window = new AccessOrderDeque();
+    final AccessOrderDeque probation = new AccessOrderDeque();
+    final AccessOrderDeque protectedQueue = new AccessOrderDeque();
+    final long windowMaximum;
+    final long protectedMaximum;
+    long weightedSize;
+    long windowWeightedSize;
+    long protectedWeightedSize;
+
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+    final LongAdder loadSuccessCount = new LongAdder();
+    final LongAdder loadFailureCount = new LongAdder();
+    final LongAdder evictionCount = new LongAdder();
+    final LongAdder evictionWeight = new LongAdder();
+
+    TinyLfuCache(Builder builder) {
+        this.name = builder.name;
+        this.maximum = builder.maximum;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWrite == null ? 0 : builder.expireAfterWrite.toNanos();
+        this.refreshAfterWriteNanos = builder.refreshAfterWrite == null ? 0 : builder.refreshAfterWrite.toNanos();
+        this.executor = builder.executor;
+        this.windowMaximum = (long) (this.maximum * WINDOW_PERCENT);
+        this.protectedMaximum = (long) ((this.maximum - this.windowMaximum) * PROTECTED_PERCENT);
+        // 初始为最小容量，随条目数增长
+        this.sketch.ensureCapacity(0);
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getIfPresent(Object key) {
+        Node node = this.data.get(key);
+        if (node == null) {
+            this.missCount.increment();
+            return null;
+        }
+        if (hasExpired(node, System.nanoTime())) {
+            removeExpired(node);
+            this.missCount.increment();
+            return null;
+        }
+        afterRead(node);
+        this.hitCount.increment();
+        return node.value;
+    }
+
+    @Override
+    public Object get(Object key, CacheLoader loader) throws Throwable {
+        Node node = this.data.get(key);
+        long now = System.nanoTime();
+        if (node != null) {
+            if (!hasExpired(node, now)) {
+                afterRead(node);
+                this.hitCount.increment();
+                if (this.refreshAfterWriteNanos > 0 && now - node.writeTime >= this.refreshAfterWriteNanos) {
+                    refresh(node, loader);
+                }
+                return node.value;
+            }
+            removeExpired(node);
+        }
+        this.missCount.increment();
+        Object value = load(key, loader);
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Objects.requireNonNull(value, "Cache value must not be null.");
+        Node node = new Node(key, value, this.weigher.weigh(key, value), System.nanoTime());
+        Node prior = this.data.put(key, node);
+        afterWrite(node, prior);
+    }
+
+    @Override
+    public void evict(Object key) {
+        Node node = this.data.remove(key);
+        if (node != null) {
+            node.retired = true;
+            this.evictionLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.evictionLock.lock();
+        try {
+            for (Object key : this.data.keySet()) {
+                Node node = this.data.remove(key);
+                if (node != null) {
+                    node.retired = true;
+                    unlink(node);
+                }
+            }
+            this.readBuffer.drainTo(this.onAccess);
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(this.hitCount.sum(), this.missCount.sum(), this.loadSuccessCount.sum(),
+                this.loadFailureCount.sum(), this.evictionCount.sum(), this.evictionWeight.sum());
+    }
+
+    /**
+     * 条目数，可能包含已过期但还没被删除的条目
+     */
+    public long estimatedSize() {
+        return this.data.mappingCount();
+    }
+
+    /**
+     * 立即处理读缓冲区中的记录并执行淘汰
+     */
+    public void cleanUp() {
+        this.evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    boolean hasExpired(Node node, long now) {
+        return this.expireAfterWriteNanos > 0 && now - node.writeTime >= this.expireAfterWriteNanos;
+    }
+
+    Object load(Object key, CacheLoader loader) throws Throwable {
+        Object value;
+        try {
+            value = loader.load(key);
+        } catch (Throwable e) {
+            this.loadFailureCount.increment();
+            throw e;
+        }
+        if (value == null) {
+            this.loadFailureCount.increment();
+            throw new IllegalStateException("CacheLoader returned null for key " + key);
+        }
+        this.loadSuccessCount.increment();
+        return value;
+    }
+
+    /**
+     * 异步刷新，同一个条目同时只刷新一次，刷新期间继续返回旧值
+     */
+    void refresh(Node node, CacheLoader loader) {
+        if (!Node.REFRESHING.compareAndSet(node, 0, 1)) {
+            return;
+        }
+        this.executor.execute(() -> {
+            try {
+                Object value = load(node.key, loader);
+                Node refreshed = new Node(node.key, value, this.weigher.weigh(node.key, value), System.nanoTime());
+                // 刷新期间条目被替换或删除时丢弃刷新结果
+                if (this.data.replace(node.key, node, refreshed)) {
+                    afterWrite(refreshed, node);
+                }
+            } catch (Throwable e) {
+                logger.warn("refresh cache {} key {} failed: {}", this.name, node.key, e.toString());
+            } finally {
+                node.refreshing = 0;
+            }
+        });
+    }
+
+    void removeExpired(Node node) {
+        if (this.data.remove(node.key, node)) {
+            node.retired = true;
+            this.evictionLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 记录读访问，缓冲区满时尝试获取淘汰锁清空缓冲区，并直接处理这次访问；获取不到锁则丢弃这次记录
+     */
+    void afterRead(Node node) {
+        if (this.readBuffer.offer(node) && this.evictionLock.tryLock()) {
+            try {
+                maintenance();
+                onAccess(node);
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 在淘汰锁内把新条目加入窗口，移除被替换的旧条目，然后执行淘汰
+     * 新条目在加锁前可能已经被其他线程删除或替换（retired），此时不再加入
+     */
+    void afterWrite(Node node, Node prior) {
+        if (prior != null) {
+            prior.retired = true;
+        }
+        this.evictionLock.lock();
+        try {
+            if (prior != null) {
+                unlink(prior);
+            }
+            if (!node.retired) {
+                node.queue = WINDOW;
+                this.window.linkLast(node);
+                this.windowWeightedSize += node.weight;
+                this.weightedSize += node.weight;
+                this.sketch.increment(node.key);
+            }
+            maintenance();
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    void maintenance() {
+        this.readBuffer.drainTo(this.onAccess);
+        evictEntries();
+    }
+
+    /**
+     * 处理一次读访问：窗口内移到队尾，probation中的条目晋升到protected，protected超出容量时最老的降级回probation
+     */
+    void onAccess(Node node) {
+        if (node.retired || node.queue == NONE) {
+            return;
+        }
+        this.sketch.increment(node.key);
+        if (node.queue == WINDOW) {
+            this.window.moveToBack(node);
+        } else if (node.queue == PROBATION) {
+            this.probation.unlink(node);
+            node.queue = PROTECTED;
+            this.protectedQueue.linkLast(node);
+            this.protectedWeightedSize += node.weight;
+            while (this.protectedWeightedSize > this.protectedMaximum) {
+                Node demoted = this.protectedQueue.pollFirst();
+                if (demoted == null) {
+                    break;
+                }
+                this.protectedWeightedSize -= demoted.weight;
+                demoted.queue = PROBATION;
+                this.probation.linkLast(demoted);
+            }
+        } else {
+            this.protectedQueue.moveToBack(node);
+        }
+    }
+
+    void evictEntries() {
+        this.sketch.ensureCapacity(Math.min(this.maximum, this.data.mappingCount()));
+        // 窗口超出容量时，最老的条目作为候选进入probation
+        while (this.windowWeightedSize > this.windowMaximum) {
+            Node node = this.window.pollFirst();
+            if (node == null) {
+                break;
+            }
+            this.windowWeightedSize -= node.weight;
+            node.queue = PROBATION;
+            this.probation.linkLast(node);
+        }
+        // 总容量超出时，在候选（probation队尾）和受害者（probation队首）中淘汰访问频率低的
+        while (this.weightedSize > this.maximum) {
+            Node victim = this.probation.peekFirst();
+            Node candidate = this.probation.peekLast();
+            if (victim == null) {
+                victim = this.protectedQueue.peekFirst();
+                if (victim == null) {
+                    victim = this.window.peekFirst();
+                }
+                if (victim == null) {
+                    break;
+                }
+                evictNode(victim);
+            } else if (victim == candidate) {
+                evictNode(victim);
+            } else if (this.sketch.frequency(candidate.key) > this.sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    void evictNode(Node node) {
+        this.data.remove(node.key, node);
+        node.retired = true;
+        unlink(node);
+        this.evictionCount.increment();
+        this.evictionWeight.add(node.weight);
+    }
+
+    void unlink(Node node) {
+        switch (node.queue) {
+            case WINDOW -> {
+                this.window.unlink(node);
+                this.windowWeightedSize -= node.weight;
+            }
+            case PROBATION -> this.probation.unlink(node);
+            case PROTECTED -> {
+                this.protectedQueue.unlink(node);
+                this.protectedWeightedSize -= node.weight;
+            }
+            default -> {
+                return;
+            }
+        }
+        this.weightedSize -= node.weight;
+        node.queue = NONE;
+    }
+
+    static final class Node {
+        static final AtomicIntegerFieldUpdater<Node> REFRESHING = AtomicIntegerFieldUpdater.newUpdater(Node.class, "refreshing");
+
+        final Object key;
+        final Object value;
+        final int weight;
+        final long writeTime;
+        // 已从data中删除或被替换
+        volatile boolean retired;
+        volatile int refreshing;
+
+        // 以下字段只在持有淘汰锁时访问
+        int queue = NONE;
+        Node prev;
+        Node next;
+
+        Node(Object key, Object value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * 侵入式的双向链表，队首最老
+     */
+    static final class AccessOrderDeque {
+        Node head;
+        Node tail;
+
+        Node peekFirst() {
+            return head;
+        }
+
+        Node peekLast() {
+            return tail;
+        }
+
+        Node pollFirst() {
+            Node node = head;
+            if (node != null) {
+                unlink(node);
+            }
+            return node;
+        }
+
+        void linkLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void unlink(Node node) {
+            Node prev = node.prev;
+            Node next = node.next;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node node) {
+            if (node != tail) {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    public static class Builder {
+        final String name;
+        long maximum = Long.MAX_VALUE;
+        boolean bounded = false;
+        Weigher weigher = (key, value) -> 1;
+        Duration expireAfterWrite;
+        Duration refreshAfterWrite;
+        Executor executor = ForkJoinPool.commonPool();
+
+        Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 按条目数限制大小
+         */
+        public Builder maximumSize(long maximumSize) {
+            setMaximum(maximumSize);
+            this.weigher = (key, value) -> 1;
+            return this;
+        }
+
+        /**
+         * 按weigher计算的总权重限制大小
+         */
+        public Builder maximumWeight(long maximumWeight, Weigher weigher) {
+            setMaximum(maximumWeight);
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        public Builder expireAfterWrite(Duration duration) {
+            this.expireAfterWrite = duration;
+            return this;
+        }
+
+        /**
+         * 写入超过该时间后，通过get(key, loader)读取时返回旧值并异步刷新
+         */
+        public Builder refreshAfterWrite(Duration duration) {
+            this.refreshAfterWrite = duration;
+            return this;
+        }
+
+        /**
+         * 执行异步刷新的线程池，默认ForkJoinPool.commonPool()
+         */
+        public Builder executor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        public TinyLfuCache build() {
+            return new TinyLfuCache(this);
+        }
+
+        void setMaximum(long maximum) {
+            if (this.bounded) {
+                throw new IllegalStateException("Maximum size or weight was already set.");
+            }
+            if (maximum < 0) {
+                throw new IllegalArgumentException("Maximum must not be negative: " + maximum);
+            }
+            this.bounded = true;
+            this.maximum = maximum;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package xyz.xminao.springlet.aop.cache;
+
+/**
+ * 计算缓存条目的权重，用于按权重限制缓存大小
+ */
+@FunctionalInterface
+public interface Weigher {
+
+    int weigh(Object key, Object value);
+}
@@ -0,0 +1,16 @@
+package xyz.xminao.springlet.aop.coalesce;
+
+import xyz.xminao.springlet.aop.cache.SimpleKey;
+
+import java.lang.reflect.Method;
+
+/**
+ * 默认的key：全部参数，和@Cacheable生成key的规则相同
+ */
+public class ArgumentsKeyFunction implements CoalesceKeyFunction {
+
+    @Override
+    public Object key(Method method, Object[] args) {
+        return SimpleKey.generateKey(args);
+    }
+}
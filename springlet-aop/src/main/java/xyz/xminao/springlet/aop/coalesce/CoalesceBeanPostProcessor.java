@@ -0,0 +1,39 @@
+package xyz.xminao.springlet.aop.coalesce;
+
+import xyz.xminao.springlet.annotation.Coalesce;
+import xyz.xminao.springlet.aop.AbstractAdvisingBeanPostProcessor;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.AnnotationMethodMatcher;
+import xyz.xminao.springlet.aop.MethodMatcher;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拦截@Coalesce标注的方法，合并并发的相同调用
+ * 在缓存内层、事务外层：缓存未命中的并发调用只有一个会访问数据库
+ */
+public class CoalesceBeanPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    static final AnnotationMethodMatcher coalesceMatcher = new AnnotationMethodMatcher(Coalesce.class);
+
+    final CoalesceInterceptor interceptor = new CoalesceInterceptor();
+    final Advisor advisor = new Advisor(coalesceMatcher, this.interceptor, 1);
+
+    @Override
+    public List<MethodMatcher> getPointcuts(Class<?> beanClass) {
+        return coalesceMatcher.matchesAny(beanClass) ? List.of(coalesceMatcher) : List.of();
+    }
+
+    @Override
+    protected List<Advisor> getAdvisors(Class<?> beanClass, String beanName) {
+        return coalesceMatcher.matchesAny(beanClass) ? List.of(this.advisor) : List.of();
+    }
+
+    /**
+     * 每个@Coalesce方法正在执行的调用数和合并次数
+     */
+    public Map<String, CoalesceMetrics> getMetrics() {
+        return this.interceptor.getMetrics();
+    }
+}
@@ -0,0 +1,132 @@
+package xyz.xminao.springlet.aop.coalesce;
+
+import xyz.xminao.springlet.annotation.Coalesce;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.MethodInvocation;
+import xyz.xminao.springlet.aop.async.AsyncSupport;
+import xyz.xminao.springlet.exception.AopConfigException;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 处理@Coalesce的拦截器
+ * 每个方法一张正在执行的调用表，按目标对象和key区分，第一个调用执行原始方法，同一个对象上key相同的并发调用等待同一个CompletableFuture。
+ * 原始调用结束时先从表中移除再设置结果，之后到达的调用会重新执行，不会拿到过期的结果。
+ * 返回CompletionStage或CompletableFuture的方法在异步结果完成时才结束原始调用，等待的调用不阻塞，各自拿到一个副本。
+ */
+public class CoalesceInterceptor implements MethodInterceptor {
+
+    // 目标类 -> (方法 -> 合并状态)，指标按目标类区分
+    final ClassValue<Map<Method, CoalescedMethod>> methods = new ClassValue<>() {
+        @Override
+        protected Map<Method, CoalescedMethod> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    final Map<String, CoalesceMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object target = invocation.getThis();
+        CoalescedMethod m = getCoalescedMethod(invocation.getMethod(), target.getClass());
+        // 同一个类的不同实例（如连接不同数据源的DAO）不共享调用
+        Object key = new CallKey(target, m.keyFunction.key(invocation.getMethod(), invocation.getArguments()));
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = m.calls.putIfAbsent(key, call);
+        if (existing != null) {
+            m.metrics.coalesced.increment();
+            if (m.async) {
+                // 每个调用方拿到副本，一个调用方取消不影响其他调用方
+                return existing.copy();
+            }
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+        m.metrics.inFlight.incrementAndGet();
+        m.metrics.invocations.increment();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            complete(m, key, call, null, e);
+            throw e;
+        }
+        if (m.async && result != null) {
+            return AsyncSupport.whenComplete(invocation.getMethod(), (CompletionStage<?>) result,
+                    (value, error) -> complete(m, key, call, value, error));
+        }
+        complete(m, key, call, result, null);
+        return result;
+    }
+
+    void complete(CoalescedMethod m, Object key, CompletableFuture<Object> call, Object result, Throwable error) {
+        m.calls.remove(key, call);
+        m.metrics.inFlight.decrementAndGet();
+        if (error == null) {
+            call.complete(result);
+        } else {
+            call.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 按指标名（目标类的全名.方法名）获取统计
+     */
+    public Map<String, CoalesceMetrics> getMetrics() {
+        return Collections.unmodifiableMap(this.metrics);
+    }
+
+    CoalescedMethod getCoalescedMethod(Method method, Class<?> targetClass) {
+        Map<Method, CoalescedMethod> classMethods = this.methods.get(targetClass);
+        CoalescedMethod m = classMethods.get(method);
+        if (m == null) {
+            m = classMethods.computeIfAbsent(method, key -> createCoalescedMethod(key, targetClass));
+        }
+        return m;
+    }
+
+    CoalescedMethod createCoalescedMethod(Method method, Class<?> targetClass) {
+        Coalesce anno = method.getAnnotation(Coalesce.class);
+        Class<? extends CoalesceKeyFunction> keyClass = anno == null ? ArgumentsKeyFunction.class : anno.key();
+        CoalesceKeyFunction keyFunction;
+        try {
+            keyFunction = keyClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AopConfigException("Cannot create key function " + keyClass.getName() + " for method " + method, e);
+        }
+        String name = targetClass.getName() + "." + method.getName();
+        CoalesceMetrics m = this.metrics.computeIfAbsent(name, CoalesceMetrics::new);
+        // 返回类型能接收CompletableFuture时，等待的调用直接返回异步结果
+        boolean async = method.getReturnType().isAssignableFrom(CompletableFuture.class) && AsyncSupport.isAsyncMethod(method);
+        return new CoalescedMethod(keyFunction, new ConcurrentHashMap<>(), m, async);
+    }
+
+    /**
+     * 正在执行的调用的key，目标对象按引用比较
+     */
+    record CallKey(Object target, Object key) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CallKey k && this.target == k.target && Objects.equals(this.key, k.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.target) + Objects.hashCode(this.key);
+        }
+    }
+
+    record CoalescedMethod(CoalesceKeyFunction keyFunction, Map<Object, CompletableFuture<Object>> calls, CoalesceMetrics metrics, boolean async) {
+    }
+}
@@ -0,0 +1,12 @@
+package xyz.xminao.springlet.aop.coalesce;
+
+import java.lang.reflect.Method;
+
+/**
+ * 计算@Coalesce方法调用的key，key相同（equals）的并发调用会被合并
+ */
+@FunctionalInterface
+public interface CoalesceKeyFunction {
+
+    Object key(Method method, Object[] args);
+}
@@ -0,0 +1,42 @@
+package xyz.xminao.springlet.aop.coalesce;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个@Coalesce方法的统计
+ */
+public class CoalesceMetrics {
+
+    final String name;
+    // 正在执行的原始调用数，即不同key的数量
+    final AtomicInteger inFlight = new AtomicInteger();
+    final LongAdder invocations = new LongAdder();
+    final LongAdder coalesced = new LongAdder();
+
+    CoalesceMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 实际执行原始方法的次数
+     */
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    /**
+     * 等待并共享其他调用结果的次数
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+}
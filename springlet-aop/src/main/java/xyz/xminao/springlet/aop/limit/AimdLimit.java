@@ -0,0 +1,38 @@
+package xyz.xminao.springlet.aop.limit;
+
+/**
+ * 加性增、乘性减（AIMD）
+ * 没有过载并且并发接近限制时限制+1；超时或被下游拒绝时乘以backoffRatio
+ */
+public class AimdLimit implements LimitAlgorithm {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    final int minLimit;
+    final int maxLimit;
+    final long timeoutNanos;
+    volatile int limit;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, long timeoutNanos) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        int current = this.limit;
+        if (dropped || rttNanos > this.timeoutNanos) {
+            this.limit = Math.max(this.minLimit, Math.min(current - 1, (int) (current * BACKOFF_RATIO)));
+        } else if (inFlight * 2 >= current) {
+            // 并发远小于限制时说明限制不是瓶颈，不增加
+            this.limit = Math.min(this.maxLimit, current + 1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package xyz.xminao.springlet.aop.limit;
+
+import xyz.xminao.springlet.annotation.ConcurrencyLimit;
+import xyz.xminao.springlet.aop.AbstractAdvisingBeanPostProcessor;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.AnnotationMethodMatcher;
+import xyz.xminao.springlet.aop.MethodMatcher;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拦截@ConcurrencyLimit标注的方法或类
+ * 在缓存和合并调用内层（命中缓存或被合并的调用不占用许可）、事务外层（被拒绝的调用不会获取数据库连接）
+ */
+public class ConcurrencyLimitBeanPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    static final AnnotationMethodMatcher limitMatcher = new AnnotationMethodMatcher(ConcurrencyLimit.class);
+
+    final ConcurrencyLimitInterceptor interceptor;
+    final Advisor advisor;
+
+    public ConcurrencyLimitBeanPostProcessor() {
+        this(true);
+    }
+
+    public ConcurrencyLimitBeanPostProcessor(boolean registerJmx) {
+        this.interceptor = new ConcurrencyLimitInterceptor(registerJmx);
+        this.advisor = new Advisor(limitMatcher, this.interceptor, 2);
+    }
+
+    @Override
+    public List<MethodMatcher> getPointcuts(Class<?> beanClass) {
+        return limitMatcher.matchesAny(beanClass) ? List.of(limitMatcher) : List.of();
+    }
+
+    @Override
+    protected List<Advisor> getAdvisors(Class<?> beanClass, String beanName) {
+        return limitMatcher.matchesAny(beanClass) ? List.of(this.advisor) : List.of();
+    }
+
+    /**
+     * 所有限制器的当前限制和计数，同时注册在JMX（xyz.xminao.springlet:type=ConcurrencyLimit）
+     */
+    public Map<String, ConcurrencyLimiter> getLimiters() {
+        return this.interceptor.getLimiters();
+    }
+}
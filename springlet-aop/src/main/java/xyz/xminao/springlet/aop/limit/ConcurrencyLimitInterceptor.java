@@ -0,0 +1,114 @@
+package xyz.xminao.springlet.aop.limit;
+
+import xyz.xminao.springlet.annotation.ConcurrencyLimit;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.MethodInvocation;
+import xyz.xminao.springlet.aop.async.AsyncSupport;
+import xyz.xminao.springlet.aop.metrics.JmxUtils;
+import xyz.xminao.springlet.exception.ConcurrencyLimitExceededException;
+
+import java.lang.reflect.Method;
+import java.sql.SQLTransientException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 处理@ConcurrencyLimit的拦截器，达到限制时立即拒绝
+ * 下游的超时（如连接池获取连接超时）或嵌套的限制器拒绝视为过载信号，交给限制算法减小限制
+ * 返回CompletionStage的方法在异步结果完成时才释放许可
+ */
+public class ConcurrencyLimitInterceptor implements MethodInterceptor {
+
+    final boolean registerJmx;
+    // 目标类 -> (方法 -> 限制器)，类上的@ConcurrencyLimit和默认限制器名都按目标类确定
+    final ClassValue<Map<Method, ConcurrencyLimiter>> methodLimiters = new ClassValue<>() {
+        @Override
+        protected Map<Method, ConcurrencyLimiter> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitInterceptor(boolean registerJmx) {
+        this.registerJmx = registerJmx;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ConcurrencyLimiter limiter = getLimiter(invocation.getMethod(), invocation.getThis().getClass());
+        int inFlight = limiter.tryAcquire();
+        if (inFlight < 0) {
+            throw new ConcurrencyLimitExceededException(String.format("Concurrency limit %d of '%s' exceeded.", limiter.getLimit(), limiter.getName()));
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            limiter.release(System.nanoTime() - start, inFlight, isDropped(e));
+            throw e;
+        }
+        if (AsyncSupport.isAsync(result)) {
+            return AsyncSupport.whenComplete(invocation.getMethod(), (CompletionStage<?>) result,
+                    (value, error) -> limiter.release(System.nanoTime() - start, inFlight, error != null && isDropped(error)));
+        }
+        limiter.release(System.nanoTime() - start, inFlight, false);
+        return result;
+    }
+
+    /**
+     * 按限制器名获取所有限制器
+     */
+    public Map<String, ConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(this.limiters);
+    }
+
+    ConcurrencyLimiter getLimiter(Method method, Class<?> targetClass) {
+        Map<Method, ConcurrencyLimiter> classLimiters = this.methodLimiters.get(targetClass);
+        ConcurrencyLimiter limiter = classLimiters.get(method);
+        if (limiter == null) {
+            limiter = classLimiters.computeIfAbsent(method, m -> createLimiter(m, targetClass));
+        }
+        return limiter;
+    }
+
+    /**
+     * 方法上的@ConcurrencyLimit优先，其次是目标类上的，同名的方法共享一个限制器，默认名为 目标类的全名.方法名
+     */
+    ConcurrencyLimiter createLimiter(Method method, Class<?> targetClass) {
+        ConcurrencyLimit anno = method.getAnnotation(ConcurrencyLimit.class);
+        if (anno == null) {
+            anno = targetClass.getAnnotation(ConcurrencyLimit.class);
+        }
+        ConcurrencyLimit config = anno;
+        String name = anno.value().isEmpty() ? targetClass.getName() + "." + method.getName() : anno.value();
+        return this.limiters.computeIfAbsent(name, key -> {
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(key, createAlgorithm(config));
+            if (this.registerJmx) {
+                JmxUtils.registerMBean(limiter, "ConcurrencyLimit", key);
+            }
+            return limiter;
+        });
+    }
+
+    static LimitAlgorithm createAlgorithm(ConcurrencyLimit config) {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.timeoutMillis());
+        return switch (config.algorithm()) {
+            case AIMD -> new AimdLimit(config.initialLimit(), config.minLimit(), config.maxLimit(), timeoutNanos);
+            case GRADIENT -> new GradientLimit(config.initialLimit(), config.minLimit(), config.maxLimit(), timeoutNanos);
+        };
+    }
+
+    static boolean isDropped(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConcurrencyLimitExceededException || t instanceof TimeoutException || t instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+package xyz.xminao.springlet.aop.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个并发限制：正在执行的调用数不超过LimitAlgorithm给出的限制
+ */
+public class ConcurrencyLimiter implements ConcurrencyLimiterMXBean {
+
+    final String name;
+    final LimitAlgorithm algorithm;
+    final AtomicInteger inFlight = new AtomicInteger();
+    final LongAdder accepted = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+
+    public ConcurrencyLimiter(String name, LimitAlgorithm algorithm) {
+        this.name = name;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * 尝试获取一个许可，返回获取后正在执行的调用数，达到限制时返回-1
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= this.algorithm.getLimit()) {
+                this.rejected.increment();
+                return -1;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                this.accepted.increment();
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * 释放许可并把这次调用的耗时交给限制算法
+     */
+    public void release(long rttNanos, int inFlight, boolean dropped) {
+        this.inFlight.decrementAndGet();
+        if (dropped) {
+            this.dropped.increment();
+        }
+        this.algorithm.onSample(rttNanos, inFlight, dropped);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getLimit() {
+        return algorithm.getLimit();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 被下游拒绝（嵌套的限制器拒绝）的调用数
+     */
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
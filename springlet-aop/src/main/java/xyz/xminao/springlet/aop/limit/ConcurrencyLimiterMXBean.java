@@ -0,0 +1,20 @@
+package xyz.xminao.springlet.aop.limit;
+
+/**
+ * 通过JMX暴露的并发限制状态
+ * ObjectName: xyz.xminao.springlet:type=ConcurrencyLimit,name=限制器名
+ */
+public interface ConcurrencyLimiterMXBean {
+
+    String getName();
+
+    int getLimit();
+
+    int getInFlight();
+
+    long getAcceptedCount();
+
+    long getRejectedCount();
+
+    long getDroppedCount();
+}
@@ -0,0 +1,64 @@
+package xyz.xminao.springlet.aop.limit;
+
+/**
+ * 梯度算法（参考Netflix concurrency-limits的Gradient2）
+ *
+ * 维护长期平均耗时longRtt（指数移动平均），每次调用计算 gradient = tolerance * longRtt / rtt，取值在[0.5, 1]，
+ * 新限制 = 当前限制 * gradient + queueSize，再与当前限制做平滑。耗时没有上升时限制按queueSize增长，
+ * 耗时上升时限制成比例减小，不需要等到超时。
+ */
+public class GradientLimit implements LimitAlgorithm {
+
+    static final double TOLERANCE = 1.5;
+    static final double SMOOTHING = 0.2;
+    static final int LONG_WINDOW = 600;
+
+    final int minLimit;
+    final int maxLimit;
+    final long timeoutNanos;
+    volatile int limit;
+    // 以下字段只在synchronized中访问
+    double estimatedLimit;
+    double longRtt;
+    long samples;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, long timeoutNanos) {
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        double rtt = Math.max(1, rttNanos);
+        // 长期平均：前LONG_WINDOW个样本用算术平均预热，之后用指数移动平均
+        this.samples++;
+        double factor = this.samples < LONG_WINDOW ? 1.0 / this.samples : 2.0 / (LONG_WINDOW + 1);
+        this.longRtt += (rtt - this.longRtt) * factor;
+        // 长期平均远高于最近耗时说明负载已经下降，加快长期平均恢复
+        if (this.longRtt / rtt > 2) {
+            this.longRtt *= 0.95;
+        }
+        if (dropped || rttNanos > this.timeoutNanos) {
+            this.estimatedLimit = Math.max(this.minLimit, this.estimatedLimit * 0.5);
+        } else {
+            // 并发远小于限制时样本不能反映限制是否合适
+            if (inFlight < this.estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * this.longRtt / rtt));
+            double queueSize = Math.sqrt(this.estimatedLimit);
+            double newLimit = this.estimatedLimit * gradient + queueSize;
+            newLimit = this.estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        }
+        this.limit = (int) this.estimatedLimit;
+    }
+}
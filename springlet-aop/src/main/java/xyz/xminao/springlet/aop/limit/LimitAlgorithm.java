@@ -0,0 +1,17 @@
+package xyz.xminao.springlet.aop.limit;
+
+/**
+ * 根据每次调用的耗时调整并发限制
+ */
+public interface LimitAlgorithm {
+
+    int getLimit();
+
+    /**
+     * 一次调用结束
+     * @param rttNanos 耗时
+     * @param inFlight 调用开始时正在执行的调用数（包括自己）
+     * @param dropped 调用超时或被下游拒绝
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,34 @@
+package xyz.xminao.springlet.aop.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 注册AOP指标到平台MBeanServer
+ */
+public class JmxUtils {
+
+    static final Logger logger = LoggerFactory.getLogger(JmxUtils.class);
+
+    static final String JMX_DOMAIN = "xyz.xminao.springlet";
+
+    /**
+     * 注册为 xyz.xminao.springlet:type=类型,name=名字，已存在时跳过，失败只记录日志
+     */
+    public static void registerMBean(Object mbean, String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException e) {
+            logger.warn("cannot register {} {} to JMX: {}", type, name, e.toString());
+        }
+    }
+}
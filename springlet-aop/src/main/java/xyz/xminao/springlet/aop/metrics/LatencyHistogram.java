@@ -0,0 +1,133 @@
+package xyz.xminao.springlet.aop.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定内存、无锁的对数-线性直方图（类似HdrHistogram），记录纳秒耗时
+ *
+ * 每个2的幂区间再线性划分为16个子区间，相对误差不超过1/16，覆盖0到Long.MAX_VALUE，一共960个计数器。
+ * record()只做几次原子加，不分配内存；snapshot()复制计数器后计算百分位，次数、均值和最大值不需要snapshot()。
+ */
+public class LatencyHistogram {
+
+    // 每个2的幂区间的子区间数为 2^SUB_BUCKET_BITS
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // 小于 2 * SUB_BUCKET_COUNT 的值每个值一个计数器
+    static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+    static final int BUCKET_COUNT = indexOf(Long.MAX_VALUE) + 1;
+
+    final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    final LongAdder count = new LongAdder();
+    final LongAdder sum = new LongAdder();
+    final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一个值，负数按0处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts.incrementAndGet(indexOf(value));
+        this.count.increment();
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public double getMean() {
+        long n = this.count.sum();
+        return n == 0 ? 0 : (double) this.sum.sum() / n;
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = this.counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, this.sum.sum(), this.max.get());
+    }
+
+    /**
+     * 值所在的计数器下标：保留最高的 SUB_BUCKET_BITS + 1 位
+     */
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * 计数器对应区间的最大值
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * 某一时刻的直方图副本，不同计数器之间不保证是同一瞬间的值
+     */
+    public static class Snapshot {
+
+        final long[] counts;
+        final long count;
+        final long sum;
+        final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * 百分位对应的值，percentile取值0~100，返回所在区间的最大值且不超过记录到的最大值
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package xyz.xminao.springlet.aop.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个指标的调用次数、异常次数和耗时直方图
+ */
+public class MethodMetrics implements MethodMetricsMXBean {
+
+    final String name;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final AtomicLong errors = new AtomicLong();
+
+    public MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次调用，不分配内存
+     */
+    public void record(long nanos, boolean error) {
+        this.latency.record(nanos);
+        if (error) {
+            this.errors.incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return this.latency.snapshot();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    @Override
+    public double getMean() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getMax() {
+        return latency.getMax();
+    }
+
+    @Override
+    public long get50thPercentile() {
+        return snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long get90thPercentile() {
+        return snapshot().getValueAtPercentile(90);
+    }
+
+    @Override
+    public long get99thPercentile() {
+        return snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long get999thPercentile() {
+        return snapshot().getValueAtPercentile(99.9);
+    }
+}
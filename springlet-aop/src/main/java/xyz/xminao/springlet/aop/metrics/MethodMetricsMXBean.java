@@ -0,0 +1,26 @@
+package xyz.xminao.springlet.aop.metrics;
+
+/**
+ * 通过JMX暴露的方法指标，耗时单位为纳秒
+ * ObjectName: xyz.xminao.springlet:type=Timed,name=指标名
+ */
+public interface MethodMetricsMXBean {
+
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMean();
+
+    long getMax();
+
+    long get50thPercentile();
+
+    long get90thPercentile();
+
+    long get99thPercentile();
+
+    long get999thPercentile();
+}
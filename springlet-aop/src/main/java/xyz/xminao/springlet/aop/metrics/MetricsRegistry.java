@@ -0,0 +1,55 @@
+package xyz.xminao.springlet.aop.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按名字保存所有@Timed指标，首次创建时注册到JMX
+ */
+public class MetricsRegistry {
+
+    final Map<String, MethodMetrics> metrics = new ConcurrentHashMap<>();
+    final boolean registerJmx;
+
+    private static class InstanceHolder {
+        static final MetricsRegistry INSTANCE = new MetricsRegistry(true);
+    }
+
+    public static MetricsRegistry getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public MetricsRegistry(boolean registerJmx) {
+        this.registerJmx = registerJmx;
+    }
+
+    /**
+     * 获取指标，不存在则创建
+     */
+    public MethodMetrics getOrCreate(String name) {
+        MethodMetrics m = this.metrics.get(name);
+        if (m == null) {
+            m = this.metrics.computeIfAbsent(name, key -> {
+                MethodMetrics created = new MethodMetrics(key);
+                if (this.registerJmx) {
+                    JmxUtils.registerMBean(created, "Timed", key);
+                }
+                return created;
+            });
+        }
+        return m;
+    }
+
+    /**
+     * 获取指标，不存在返回null
+     */
+    public MethodMetrics get(String name) {
+        return this.metrics.get(name);
+    }
+
+    public Map<String, MethodMetrics> getAll() {
+        return Collections.unmodifiableMap(this.metrics);
+    }
+
+}
@@ -0,0 +1,38 @@
+package xyz.xminao.springlet.aop.metrics;
+
+import xyz.xminao.springlet.annotation.Timed;
+import xyz.xminao.springlet.aop.AbstractAdvisingBeanPostProcessor;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.AnnotationMethodMatcher;
+import xyz.xminao.springlet.aop.MethodMatcher;
+
+import java.util.List;
+
+/**
+ * 拦截@Timed标注的方法或类，记录调用次数、异常次数和耗时
+ * 拦截器是内置的，不需要提供拦截器Bean；放在拦截器链最外层，耗时包含其他切面（如事务）
+ */
+public class TimedBeanPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    static final AnnotationMethodMatcher timedMatcher = new AnnotationMethodMatcher(Timed.class);
+
+    final Advisor advisor;
+
+    public TimedBeanPostProcessor() {
+        this(MetricsRegistry.getInstance());
+    }
+
+    public TimedBeanPostProcessor(MetricsRegistry registry) {
+        this.advisor = new Advisor(timedMatcher, new TimedInterceptor(registry), Integer.MIN_VALUE);
+    }
+
+    @Override
+    public List<MethodMatcher> getPointcuts(Class<?> beanClass) {
+        return timedMatcher.matchesAny(beanClass) ? List.of(timedMatcher) : List.of();
+    }
+
+    @Override
+    protected List<Advisor> getAdvisors(Class<?> beanClass, String beanName) {
+        return timedMatcher.matchesAny(beanClass) ? List.of(this.advisor) : List.of();
+    }
+}
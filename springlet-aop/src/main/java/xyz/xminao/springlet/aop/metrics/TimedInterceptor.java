@@ -0,0 +1,78 @@
+package xyz.xminao.springlet.aop.metrics;
+
+import xyz.xminao.springlet.annotation.Timed;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.MethodInvocation;
+import xyz.xminao.springlet.aop.async.AsyncSupport;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录方法耗时的拦截器，每个目标类的每个Method对应的指标只查找一次
+ * 返回CompletionStage的方法记录到异步结果完成为止的耗时
+ */
+public class TimedInterceptor implements MethodInterceptor {
+
+    final MetricsRegistry registry;
+    // 目标类 -> (方法 -> 指标)，类上的@Timed和默认指标名都按目标类确定
+    final ClassValue<Map<Method, MethodMetrics>> methodMetrics = new ClassValue<>() {
+        @Override
+        protected Map<Method, MethodMetrics> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public TimedInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodMetrics metrics = getMetrics(invocation.getMethod(), invocation.getThis().getClass());
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            metrics.record(System.nanoTime() - start, true);
+            throw e;
+        }
+        if (AsyncSupport.isAsync(result)) {
+            return AsyncSupport.whenComplete(invocation.getMethod(), (CompletionStage<?>) result,
+                    (value, error) -> metrics.record(System.nanoTime() - start, error != null));
+        }
+        metrics.record(System.nanoTime() - start, false);
+        return result;
+    }
+
+    MethodMetrics getMetrics(Method method, Class<?> targetClass) {
+        Map<Method, MethodMetrics> classMetrics = this.methodMetrics.get(targetClass);
+        MethodMetrics m = classMetrics.get(method);
+        if (m == null) {
+            m = classMetrics.computeIfAbsent(method, key -> this.registry.getOrCreate(metricName(key, targetClass)));
+        }
+        return m;
+    }
+
+    /**
+     * 方法上的@Timed优先，其次是目标类上的@Timed作为前缀，都没有指定名字时使用 目标类的全名.方法名(参数类型)
+     * 默认名包含参数类型的简单类名，重载的方法各自一个指标
+     */
+    static String metricName(Method method, Class<?> targetClass) {
+        Timed anno = method.getAnnotation(Timed.class);
+        if (anno != null && !anno.value().isEmpty()) {
+            return anno.value();
+        }
+        Timed classAnno = targetClass.getAnnotation(Timed.class);
+        String prefix = classAnno != null && !classAnno.value().isEmpty() ? classAnno.value() : targetClass.getName();
+        StringJoiner params = new StringJoiner(",", "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            params.add(type.getSimpleName());
+        }
+        return prefix + "." + method.getName() + params;
+    }
+}
@@ -0,0 +1,22 @@
+package xyz.xminao.springlet.exception;
+
+/**
+ * @ConcurrencyLimit的方法正在执行的调用数已达到限制，调用被直接拒绝
+ */
+public class ConcurrencyLimitExceededException extends NestedRuntimeException {
+    public ConcurrencyLimitExceededException() {
+        super();
+    }
+
+    public ConcurrencyLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+
+    public ConcurrencyLimitExceededException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -1,9 +1,20 @@
 package xyz.xminao.springlet.around;
 
 import org.junit.jupiter.api.Test;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.AroundProxyBeanPostProcessor;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.MethodMatcher;
+import xyz.xminao.springlet.aop.ProxyClassGenerator;
+import xyz.xminao.springlet.aop.ProxyObject;
 import xyz.xminao.springlet.aop.ProxyResolver;
+import xyz.xminao.springlet.precompiled.PrecompiledBean;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,4 +45,136 @@ public class AroundProxyTest {
         // 调用不带@Polite的方法
         assertEquals("Morning, Minao.", proxy.morning());
     }
+
+    @Test
+    public void testProxyClassCache() {
+        ProxyResolver resolver = new ProxyResolver();
+        OriginBean origin1 = new OriginBean();
+        origin1.name = "Alice";
+        OriginBean origin2 = new OriginBean();
+        origin2.name = "Bob";
+
+        OriginBean proxy1 = resolver.createProxy(origin1, new AroundInvocationHandler());
+        OriginBean proxy2 = resolver.createProxy(origin2, new AroundInvocationHandler());
+
+        // 同一个Class的代理复用同一个代理类
+        assertSame(proxy1.getClass(), proxy2.getClass());
+        // 每个代理实例转发到各自的原始bean
+        assertEquals("Hello, Alice!", proxy1.hello());
+        assertEquals("Hello, Bob!", proxy2.hello());
+        assertEquals("Morning, Bob.", proxy2.morning());
+    }
+
+    @Test
+    public void testMethodInterceptor() {
+        OriginBean origin = new OriginBean();
+        origin.name = "Minao";
+        // MethodInterceptor通过proceed()直接调用原始bean
+        OriginBean proxy = new ProxyResolver().createProxy(origin, (MethodInterceptor) invocation -> {
+            assertSame(origin, invocation.getThis());
+            String ret = (String) invocation.proceed();
+            if (invocation.getMethod().getAnnotation(Polite.class) != null) {
+                ret = ret.substring(0, ret.length() - 1) + "!";
+            }
+            return ret;
+        });
+        assertEquals("Hello, Minao!", proxy.hello());
+        assertEquals("Morning, Minao.", proxy.morning());
+    }
+
+    @Test
+    public void testMethodMatcher() throws Exception {
+        OriginBean origin = new OriginBean();
+        origin.name = "Minao";
+        List<String> intercepted = new ArrayList<>();
+        // 只拦截@Polite方法
+        OriginBean proxy = new ProxyResolver().createProxy(origin, (MethodInterceptor) invocation -> {
+            intercepted.add(invocation.getMethod().getName());
+            String ret = (String) invocation.proceed();
+            return ret.substring(0, ret.length() - 1) + "!";
+        }, MethodMatcher.annotatedWith(Polite.class));
+        assertEquals("Hello, Minao!", proxy.hello());
+        // 不匹配的方法不经过拦截器，直接转发到原始Bean
+        assertEquals("Morning, Minao.", proxy.morning());
+        assertNotNull(proxy.toString());
+        assertEquals(List.of("hello"), intercepted);
+        assertNotNull(proxy.getClass().getDeclaredMethod("hello"));
+        assertNotNull(proxy.getClass().getDeclaredMethod("morning"));
+    }
+
+    @Test
+    public void testInterceptorChain() {
+        OriginBean origin = new OriginBean();
+        origin.name = "Minao";
+        List<String> calls = new ArrayList<>();
+        ProxyResolver resolver = new ProxyResolver();
+        // 第一个切面：order为2，拦截所有方法
+        OriginBean proxy = resolver.createProxy(origin, List.of(new Advisor(MethodMatcher.ALL, invocation -> {
+            calls.add("outer:" + invocation.getMethod().getName());
+            return invocation.proceed();
+        }, 2)));
+        // 第二次代理：order为1的切面和InvocationHandler，合并到同一个代理中
+        proxy = resolver.createProxy(proxy, List.of(
+                Advisor.of(MethodMatcher.annotatedWith(Polite.class), new AroundInvocationHandler(), 0),
+                new Advisor(MethodMatcher.annotatedWith(Polite.class), invocation -> {
+                    calls.add("first:" + invocation.getMethod().getName());
+                    return invocation.proceed();
+                }, 1)));
+
+        // 只有一层代理
+        assertSame(OriginBean.class, proxy.getClass().getSuperclass());
+        assertSame(origin, ((ProxyObject) proxy).getProxyDispatcher().getTarget());
+
+        // InvocationHandler总是在最内层
+        assertEquals("Hello, Minao!", proxy.hello());
+        assertEquals(List.of("first:hello", "outer:hello"), calls);
+        calls.clear();
+        assertEquals("Morning, Minao.", proxy.morning());
+        assertEquals(List.of("outer:morning"), calls);
+    }
+
+    @Test
+    public void testPrecompiledProxyClass() throws Exception {
+        // 把代理类生成到test-classes，和构建期写入target/classes相同
+        Path outputDir = Paths.get(PrecompiledBean.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> generated = new ProxyClassGenerator(List.of(new AroundProxyBeanPostProcessor()))
+                .generate(outputDir, "xyz.xminao.springlet.precompiled");
+        assertEquals(1, generated.size());
+
+        PrecompiledBean origin = new PrecompiledBean();
+        origin.name = "Minao";
+        PrecompiledBean proxy = new ProxyResolver().createProxy(origin, new AroundInvocationHandler());
+        // 使用预生成的类，和原始类在同一个ClassLoader中，而不是运行期生成的类
+        assertEquals(generated.get(0), proxy.getClass().getName());
+        assertSame(PrecompiledBean.class.getClassLoader(), proxy.getClass().getClassLoader());
+        assertEquals("Hello, Minao!", proxy.hello());
+
+        // 拦截的方法不同时不会使用预生成的类
+        PrecompiledBean other = new ProxyResolver().createProxy(origin, new AroundInvocationHandler(), MethodMatcher.annotatedWith(Polite.class));
+        assertNotEquals(generated.get(0), other.getClass().getName());
+        // 运行期生成的是隐藏类
+        assertTrue(other.getClass().isHidden());
+        assertFalse(proxy.getClass().isHidden());
+    }
+
+    @Test
+    public void testConstructorFreeProxy() {
+        ConstructorBean origin = new ConstructorBean("Minao");
+        int instances = ConstructorBean.instances;
+        ConstructorBean proxy = new ProxyResolver().createProxy(origin, new AroundInvocationHandler());
+        // 创建代理不执行被代理类的构造方法
+        assertEquals(instances, ConstructorBean.instances);
+        assertNull(proxy.name);
+        assertEquals("Hello, Minao!", proxy.hello());
+    }
+
+    @Test
+    public void testConstructorFreeProxyForwardsUnmatchedMethods() {
+        ConstructorBean origin = new ConstructorBean("Minao");
+        ConstructorBean proxy = new ProxyResolver().createProxy(origin, new AroundInvocationHandler(), MethodMatcher.annotatedWith(Polite.class));
+        // 代理实例的字段没有初始化，没有被拦截的方法也要在原始Bean上执行
+        assertNull(proxy.name);
+        assertEquals("Hello, Minao!", proxy.hello());
+        assertEquals("Morning, Minao.", proxy.morning());
+    }
 }
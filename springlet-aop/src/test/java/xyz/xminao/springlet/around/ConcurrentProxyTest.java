@@ -0,0 +1,93 @@
+package xyz.xminao.springlet.around;
+
+import org.junit.jupiter.api.Test;
+import xyz.xminao.springlet.aop.AbstractAdvisingBeanPostProcessor;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.MethodMatcher;
+import xyz.xminao.springlet.aop.ProxyResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多线程并发创建代理
+ */
+public class ConcurrentProxyTest {
+
+    static final int THREADS = 16;
+    static final int BEANS_PER_THREAD = 500;
+
+    @Test
+    public void testConcurrentProxy() throws Exception {
+        PoliteBeanPostProcessor processor = new PoliteBeanPostProcessor();
+        Set<ProxyResolver> resolvers = ConcurrentHashMap.newKeySet();
+        Set<Class<?>> proxyClasses = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    resolvers.add(ProxyResolver.getInstance());
+                    for (int i = 0; i < BEANS_PER_THREAD; i++) {
+                        String beanName = "bean-" + thread + "-" + i;
+                        String name = thread + "-" + i;
+                        Object bean;
+                        if (i % 2 == 0) {
+                            OriginBean origin = new OriginBean();
+                            origin.name = name;
+                            bean = origin;
+                        } else {
+                            bean = new ConstructorBean(name);
+                        }
+                        Object proxy = processor.postProcessBeforeInitialization(bean, beanName);
+                        proxyClasses.add(proxy.getClass());
+                        String hello = proxy instanceof OriginBean o ? o.hello() : ((ConstructorBean) proxy).hello();
+                        assertEquals("Hello, " + name + "!", hello);
+                        // 注入依赖时拿到的是原始Bean
+                        assertSame(bean, processor.postProcessOnSetProperty(proxy, beanName));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, resolvers.size());
+        // 每个被代理类只有一个代理类被使用
+        assertEquals(2, proxyClasses.size());
+    }
+
+    /**
+     * 不依赖容器，直接提供拦截器的BeanPostProcessor
+     */
+    static class PoliteBeanPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+        final Advisor advisor = Advisor.of(MethodMatcher.ALL, new AroundInvocationHandler(), 0);
+
+        @Override
+        public List<MethodMatcher> getPointcuts(Class<?> beanClass) {
+            return List.of(MethodMatcher.ALL);
+        }
+
+        @Override
+        protected List<Advisor> getAdvisors(Class<?> beanClass, String beanName) {
+            return List.of(this.advisor);
+        }
+    }
+}
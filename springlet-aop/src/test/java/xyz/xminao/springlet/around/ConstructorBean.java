@@ -0,0 +1,25 @@
+package xyz.xminao.springlet.around;
+
+/**
+ * 只有注入构造方法的Bean，构造方法有副作用
+ */
+public class ConstructorBean {
+
+    static int instances = 0;
+
+    final String name;
+
+    public ConstructorBean(String name) {
+        instances++;
+        this.name = name;
+    }
+
+    @Polite
+    public String hello() {
+        return "Hello, " + name + ".";
+    }
+
+    public String morning() {
+        return "Morning, " + name + ".";
+    }
+}
@@ -0,0 +1,16 @@
+package xyz.xminao.springlet.async;
+
+import xyz.xminao.springlet.annotation.ConcurrencyLimit;
+import xyz.xminao.springlet.annotation.Timed;
+
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncService {
+
+    @Timed("async.query")
+    @ConcurrencyLimit(value = "async.query", initialLimit = 1, minLimit = 1, maxLimit = 1)
+    public CompletableFuture<String> query(CompletableFuture<String> pending) {
+        // 由测试决定异步结果何时完成
+        return pending;
+    }
+}
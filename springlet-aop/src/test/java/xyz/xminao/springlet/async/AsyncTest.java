@@ -0,0 +1,117 @@
+package xyz.xminao.springlet.async;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import xyz.xminao.springlet.aop.async.ContextPropagation;
+import xyz.xminao.springlet.aop.async.ContextPropagator;
+import xyz.xminao.springlet.aop.async.ContextSnapshot;
+import xyz.xminao.springlet.aop.limit.ConcurrencyLimitBeanPostProcessor;
+import xyz.xminao.springlet.aop.limit.ConcurrencyLimiter;
+import xyz.xminao.springlet.aop.metrics.MethodMetrics;
+import xyz.xminao.springlet.aop.metrics.MetricsRegistry;
+import xyz.xminao.springlet.aop.metrics.TimedBeanPostProcessor;
+import xyz.xminao.springlet.exception.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncTest {
+
+    @Test
+    public void testTimedAsync() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        TimedBeanPostProcessor processor = new TimedBeanPostProcessor(registry);
+        AsyncService proxy = (AsyncService) processor.postProcessBeforeInitialization(new AsyncService(), "asyncService");
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> result = proxy.query(pending);
+        MethodMetrics metrics = registry.get("async.query");
+        // 方法已经返回，但异步结果还没有完成
+        assertEquals(0, metrics.getCount());
+        pending.complete("done");
+        assertEquals("done", result.get(10, TimeUnit.SECONDS));
+        assertEquals(1, metrics.getCount());
+        assertEquals(0, metrics.getErrorCount());
+
+        CompletableFuture<String> failing = new CompletableFuture<>();
+        CompletableFuture<String> failed = proxy.query(failing);
+        failing.completeExceptionally(new IllegalStateException("boom"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals(2, metrics.getCount());
+        assertEquals(1, metrics.getErrorCount());
+    }
+
+    @Test
+    public void testLimitAsync() throws Exception {
+        ConcurrencyLimitBeanPostProcessor processor = new ConcurrencyLimitBeanPostProcessor(false);
+        AsyncService proxy = (AsyncService) processor.postProcessBeforeInitialization(new AsyncService(), "asyncService");
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> result = proxy.query(pending);
+        ConcurrencyLimiter limiter = processor.getLimiters().get("async.query");
+        // 异步结果完成前一直占用许可
+        assertEquals(1, limiter.getInFlight());
+        assertThrows(ConcurrencyLimitExceededException.class, () -> proxy.query(new CompletableFuture<>()));
+        pending.complete("done");
+        assertEquals("done", result.get(10, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getInFlight());
+        assertEquals("again", proxy.query(CompletableFuture.completedFuture("again")).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testContextPropagation() throws Exception {
+        ThreadLocal<String> tenant = new ThreadLocal<>();
+        ContextPropagator propagator = new ContextPropagator() {
+            @Override
+            public Object capture() {
+                return tenant.get();
+            }
+
+            @Override
+            public Object restore(Object captured) {
+                String previous = tenant.get();
+                tenant.set((String) captured);
+                return previous;
+            }
+
+            @Override
+            public void reset(Object previous) {
+                tenant.set((String) previous);
+            }
+        };
+        ContextPropagation.register(propagator);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Executor executor = ContextPropagation.wrap(pool);
+            tenant.set("minao");
+            MDC.put("traceId", "t-1");
+            CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> tenant.get() + "/" + MDC.get("traceId"), executor);
+            assertEquals("minao/t-1", future.get(10, TimeUnit.SECONDS));
+
+            // 任务结束后执行线程恢复原来的上下文
+            tenant.remove();
+            MDC.clear();
+            assertEquals("null/null", CompletableFuture.supplyAsync(() -> tenant.get() + "/" + MDC.get("traceId"), pool).get(10, TimeUnit.SECONDS));
+
+            tenant.set("snapshot");
+            ContextSnapshot snapshot = ContextPropagation.capture();
+            tenant.set("current");
+            try (ContextSnapshot.Scope ignored = snapshot.open()) {
+                assertEquals("snapshot", tenant.get());
+            }
+            assertEquals("current", tenant.get());
+        } finally {
+            pool.shutdownNow();
+            ContextPropagation.unregister(propagator);
+            tenant.remove();
+            MDC.clear();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package xyz.xminao.springlet.cache;
+
+import org.junit.jupiter.api.Test;
+import xyz.xminao.springlet.annotation.Cacheable;
+import xyz.xminao.springlet.annotation.Timed;
+import xyz.xminao.springlet.aop.ProxyObject;
+import xyz.xminao.springlet.aop.cache.CacheBeanPostProcessor;
+import xyz.xminao.springlet.aop.cache.CacheStats;
+import xyz.xminao.springlet.aop.cache.TinyLfuCache;
+import xyz.xminao.springlet.aop.metrics.MetricsRegistry;
+import xyz.xminao.springlet.aop.metrics.TimedBeanPostProcessor;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheTest {
+
+    @Test
+    public void testCacheable() {
+        CacheBeanPostProcessor processor = new CacheBeanPostProcessor();
+        UserService origin = new UserService();
+        UserService proxy = (UserService) processor.postProcessBeforeInitialization(origin, "userService");
+
+        assertEquals("user-1", proxy.getUser(1));
+        assertEquals("user-1", proxy.getUser(1));
+        assertEquals(1, proxy.getLoads());
+        // null返回值也会缓存
+        assertNull(proxy.getUser(0));
+        assertNull(proxy.getUser(0));
+        assertEquals(2, proxy.getLoads());
+
+        assertEquals("updated-1", proxy.updateUser(1));
+        assertEquals("updated-1", proxy.getUser(1));
+        assertEquals(2, proxy.getLoads());
+
+        proxy.deleteUser(1);
+        assertEquals("user-1", proxy.getUser(1));
+        assertEquals(3, proxy.getLoads());
+
+        proxy.deleteAll();
+        assertNull(proxy.getUser(0));
+        assertEquals(4, proxy.getLoads());
+
+        CacheStats stats = processor.getCache("users").getStats();
+        assertEquals(3, stats.hitCount());
+        assertEquals(4, stats.missCount());
+    }
+
+    @Test
+    public void testMergedWithOtherProcessor() {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        TimedBeanPostProcessor timedProcessor = new TimedBeanPostProcessor(registry);
+        CacheBeanPostProcessor cacheProcessor = new CacheBeanPostProcessor();
+        PriceService timed = (PriceService) timedProcessor.postProcessBeforeInitialization(new PriceService(), "priceService");
+        PriceService proxy = (PriceService) cacheProcessor.postProcessBeforeInitialization(timed, "priceService");
+
+        // 第二个BeanPostProcessor合并切面后仍使用同一个代理类，不生成新的代理类
+        assertSame(timed.getClass(), proxy.getClass());
+        assertEquals(2, ((ProxyObject) proxy).getProxyDispatcher().getAdvisors().size());
+        assertEquals(5, proxy.price("apple"));
+        assertEquals(5, proxy.price("apple"));
+        assertEquals(1, proxy.getLoads());
+        assertEquals(2, registry.get(PriceService.class.getName() + ".price(String)").getCount());
+        assertEquals(1, cacheProcessor.getCache("prices").getStats().hitCount());
+    }
+
+    public static class PriceService {
+        int loads = 0;
+
+        @Timed
+        @Cacheable("prices")
+        public int price(String id) {
+            loads++;
+            return id.length();
+        }
+
+        public int getLoads() {
+            return loads;
+        }
+    }
+
+    @Test
+    public void testFrequentEntriesSurvive() {
+        TinyLfuCache cache = TinyLfuCache.builder("lfu").maximumSize(100).build();
+        // 热点数据访问多次
+        for (int i = 0; i < 100; i++) {
+            cache.put("hot-" + i, i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertNotNull(cache.getIfPresent("hot-" + i));
+            }
+            cache.cleanUp();
+        }
+        // 一次性扫描的冷数据不会把仍在访问的热点数据挤出缓存
+        for (int i = 0; i < 1000; i++) {
+            cache.put("cold-" + i, i);
+            if (i % 100 == 99) {
+                for (int j = 0; j < 100; j++) {
+                    cache.getIfPresent("hot-" + j);
+                }
+            }
+        }
+        cache.cleanUp();
+        assertEquals(100, cache.estimatedSize());
+        int hot = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.getIfPresent("hot-" + i) != null) {
+                hot++;
+            }
+        }
+        assertTrue(hot >= 90, "hot entries left: " + hot);
+        assertEquals(1000, cache.getStats().evictionCount());
+    }
+
+    @Test
+    public void testMaximumWeight() {
+        TinyLfuCache cache = TinyLfuCache.builder("weight").maximumWeight(100, (key, value) -> ((String) value).length()).build();
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, "0123456789");
+        }
+        cache.cleanUp();
+        assertEquals(10, cache.estimatedSize());
+        assertEquals(400, cache.getStats().evictionWeight());
+    }
+
+    @Test
+    public void testExpireAndRefresh() throws Throwable {
+        TinyLfuCache expiring = TinyLfuCache.builder("expire").expireAfterWrite(Duration.ofMillis(50)).build();
+        expiring.put("a", "1");
+        assertEquals("1", expiring.getIfPresent("a"));
+        Thread.sleep(100);
+        assertNull(expiring.getIfPresent("a"));
+        assertEquals(0, expiring.estimatedSize());
+
+        AtomicInteger loads = new AtomicInteger();
+        TinyLfuCache refreshing = TinyLfuCache.builder("refresh").refreshAfterWrite(Duration.ofMillis(50)).executor(Runnable::run).build();
+        assertEquals(1, refreshing.get("a", key -> loads.incrementAndGet()));
+        assertEquals(1, refreshing.get("a", key -> loads.incrementAndGet()));
+        Thread.sleep(100);
+        // 到达刷新时间后返回旧值，同时刷新
+        assertEquals(1, refreshing.get("a", key -> loads.incrementAndGet()));
+        assertEquals(2, refreshing.get("a", key -> loads.incrementAndGet()));
+        assertEquals(2, refreshing.getStats().loadSuccessCount());
+    }
+}
@@ -0,0 +1,35 @@
+package xyz.xminao.springlet.cache;
+
+import xyz.xminao.springlet.annotation.CacheEvict;
+import xyz.xminao.springlet.annotation.CachePut;
+import xyz.xminao.springlet.annotation.Cacheable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UserService {
+
+    final AtomicInteger loads = new AtomicInteger();
+
+    @Cacheable("users")
+    public String getUser(long id) {
+        loads.incrementAndGet();
+        return id == 0 ? null : "user-" + id;
+    }
+
+    @CachePut("users")
+    public String updateUser(long id) {
+        return "updated-" + id;
+    }
+
+    @CacheEvict("users")
+    public void deleteUser(long id) {
+    }
+
+    @CacheEvict(value = "users", allEntries = true)
+    public void deleteAll() {
+    }
+
+    public int getLoads() {
+        return loads.get();
+    }
+}
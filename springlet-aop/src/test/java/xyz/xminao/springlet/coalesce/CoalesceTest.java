@@ -0,0 +1,123 @@
+package xyz.xminao.springlet.coalesce;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import xyz.xminao.springlet.aop.coalesce.CoalesceBeanPostProcessor;
+import xyz.xminao.springlet.aop.coalesce.CoalesceMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalesceTest {
+
+    static final int THREADS = 16;
+
+    @Test
+    public void testCoalesce() throws Exception {
+        CoalesceBeanPostProcessor processor = new CoalesceBeanPostProcessor();
+        ReportService origin = new ReportService();
+        ReportService proxy = (ReportService) processor.postProcessBeforeInitialization(origin, "reportService");
+
+        List<Future<String>> results = callConcurrently(origin, () -> proxy.report("daily"));
+        for (Future<String> result : results) {
+            assertEquals("report-daily", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, origin.invocations.get());
+        CoalesceMetrics metrics = processor.getMetrics().get(ReportService.class.getName() + ".report");
+        assertEquals(1, metrics.getInvocations());
+        assertEquals(THREADS - 1, metrics.getCoalesced());
+        assertEquals(0, metrics.getInFlight());
+
+        // 结束后再次调用会重新执行
+        assertEquals("report-daily", proxy.report("daily"));
+        assertEquals(2, origin.invocations.get());
+        // 不同参数不合并
+        assertEquals("report-weekly", proxy.report("weekly"));
+        assertEquals(3, origin.invocations.get());
+    }
+
+    @Test
+    @Timeout(30)
+    public void testInstancesNotShared() throws Exception {
+        CoalesceBeanPostProcessor processor = new CoalesceBeanPostProcessor();
+        ReportService first = new ReportService();
+        ReportService second = new ReportService();
+        ReportService firstProxy = (ReportService) processor.postProcessBeforeInitialization(first, "firstReportService");
+        ReportService secondProxy = (ReportService) processor.postProcessBeforeInitialization(second, "secondReportService");
+
+        first.release = new CountDownLatch(1);
+        second.release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> firstResult = executor.submit(() -> firstProxy.report("daily"));
+            while (first.invocations.get() == 0) {
+                Thread.sleep(1);
+            }
+            // 相同参数的调用在另一个实例上单独执行
+            Future<String> secondResult = executor.submit(() -> secondProxy.report("daily"));
+            while (second.invocations.get() == 0) {
+                Thread.sleep(1);
+            }
+            first.release.countDown();
+            second.release.countDown();
+            assertEquals("report-daily", firstResult.get(10, TimeUnit.SECONDS));
+            assertEquals("report-daily", secondResult.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, first.invocations.get());
+        assertEquals(1, second.invocations.get());
+    }
+
+    @Test
+    public void testCoalesceException() throws Exception {
+        CoalesceBeanPostProcessor processor = new CoalesceBeanPostProcessor();
+        ReportService origin = new ReportService();
+        ReportService proxy = (ReportService) processor.postProcessBeforeInitialization(origin, "reportService");
+
+        List<Future<String>> results = callConcurrently(origin, () -> proxy.report(""));
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(1, origin.invocations.get());
+    }
+
+    /**
+     * 多个线程同时调用，等所有线程都进入方法或开始等待后再放行
+     */
+    List<Future<String>> callConcurrently(ReportService origin, Callable<String> task) throws Exception {
+        origin.release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(task));
+            }
+            // 等待原始调用开始执行，其余线程随后都会加入同一个调用
+            while (origin.invocations.get() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(200);
+            origin.release.countDown();
+            for (Future<String> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException ignored) {
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
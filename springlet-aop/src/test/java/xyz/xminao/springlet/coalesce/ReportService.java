@@ -0,0 +1,23 @@
+package xyz.xminao.springlet.coalesce;
+
+import xyz.xminao.springlet.annotation.Coalesce;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReportService {
+
+    final AtomicInteger invocations = new AtomicInteger();
+    // 放行正在执行的调用
+    volatile CountDownLatch release = new CountDownLatch(0);
+
+    @Coalesce
+    public String report(String name) throws InterruptedException {
+        invocations.incrementAndGet();
+        release.await();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("empty name");
+        }
+        return "report-" + name;
+    }
+}
@@ -0,0 +1,48 @@
+package xyz.xminao.springlet.hidden;
+
+import org.junit.jupiter.api.Test;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.ProxyResolver;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 运行期生成的代理类是隐藏类，代理实例都被回收后代理类可以卸载
+ */
+public class HiddenProxyTest {
+
+    static final MethodInterceptor UPPER_CASE = invocation -> ((String) invocation.proceed()).toUpperCase();
+
+    @Test
+    public void testHiddenProxyClass() {
+        TenantService proxy = new ProxyResolver().createProxy(new TenantService(), UPPER_CASE);
+        assertTrue(proxy.getClass().isHidden());
+        assertSame(TenantService.class, proxy.getClass().getSuperclass());
+        assertEquals("HELLO, MINAO.", proxy.greet("Minao"));
+    }
+
+    @Test
+    public void testProxyClassUnloaded() throws Exception {
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long unloadedBefore = classLoading.getUnloadedClassCount();
+        // 模拟容器关闭：ProxyResolver和代理实例都不再被引用
+        WeakReference<Class<?>> proxyClass = createAndClose();
+        for (int i = 0; i < 50 && proxyClass.get() != null; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        assertNull(proxyClass.get(), "hidden proxy class should be reclaimed");
+        assertTrue(classLoading.getUnloadedClassCount() > unloadedBefore);
+    }
+
+    WeakReference<Class<?>> createAndClose() {
+        ProxyResolver resolver = new ProxyResolver();
+        TenantService proxy = resolver.createProxy(new TenantService(), UPPER_CASE);
+        assertEquals("HELLO, TENANT-1.", proxy.greet("tenant-1"));
+        return new WeakReference<>(proxy.getClass());
+    }
+}
@@ -0,0 +1,8 @@
+package xyz.xminao.springlet.hidden;
+
+public class TenantService {
+
+    public String greet(String tenant) {
+        return "Hello, " + tenant + ".";
+    }
+}
@@ -0,0 +1,113 @@
+package xyz.xminao.springlet.limit;
+
+import org.junit.jupiter.api.Test;
+import xyz.xminao.springlet.annotation.ConcurrencyLimit;
+import xyz.xminao.springlet.aop.limit.AimdLimit;
+import xyz.xminao.springlet.aop.limit.ConcurrencyLimitBeanPostProcessor;
+import xyz.xminao.springlet.aop.limit.ConcurrencyLimiter;
+import xyz.xminao.springlet.aop.limit.GradientLimit;
+import xyz.xminao.springlet.exception.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitTest {
+
+    static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testReject() throws Exception {
+        ConcurrencyLimitBeanPostProcessor processor = new ConcurrencyLimitBeanPostProcessor(false);
+        OrderService origin = new OrderService();
+        OrderService proxy = (OrderService) processor.postProcessBeforeInitialization(origin, "orderService");
+
+        origin.entered = new CountDownLatch(2);
+        origin.release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> proxy.placeOrder("1"));
+            Future<String> second = executor.submit(() -> proxy.placeOrder("2"));
+            assertTrue(origin.entered.await(10, TimeUnit.SECONDS));
+            // 两个许可都被占用，第三个调用立即被拒绝
+            assertThrows(ConcurrencyLimitExceededException.class, () -> proxy.placeOrder("3"));
+            origin.release.countDown();
+            assertEquals("order-1", first.get(10, TimeUnit.SECONDS));
+            assertEquals("order-2", second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("order-4", proxy.placeOrder("4"));
+
+        ConcurrencyLimiter limiter = processor.getLimiters().get("orders");
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(3, limiter.getAcceptedCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testClassLimitPerTargetClass() throws Exception {
+        ConcurrencyLimitBeanPostProcessor processor = new ConcurrencyLimitBeanPostProcessor(false);
+        SmallReportService small = (SmallReportService) processor.postProcessBeforeInitialization(new SmallReportService(), "smallReportService");
+        LargeReportService large = (LargeReportService) processor.postProcessBeforeInitialization(new LargeReportService(), "largeReportService");
+        assertEquals("report", small.report());
+        assertEquals("report", large.report());
+
+        // 继承的方法按目标类上的@ConcurrencyLimit各用一个限制器，默认名使用目标类的全名
+        assertEquals(1, processor.getLimiters().get(SmallReportService.class.getName() + ".report").getLimit());
+        assertEquals(5, processor.getLimiters().get(LargeReportService.class.getName() + ".report").getLimit());
+    }
+
+    public static class ReportService {
+        public String report() {
+            return "report";
+        }
+    }
+
+    @ConcurrencyLimit(algorithm = ConcurrencyLimit.Algorithm.AIMD, initialLimit = 1, minLimit = 1, maxLimit = 1)
+    public static class SmallReportService extends ReportService {
+    }
+
+    @ConcurrencyLimit(algorithm = ConcurrencyLimit.Algorithm.AIMD, initialLimit = 5, minLimit = 5, maxLimit = 5)
+    public static class LargeReportService extends ReportService {
+    }
+
+    @Test
+    public void testAimdLimit() {
+        AimdLimit limit = new AimdLimit(20, 1, 40, 100 * MILLIS);
+        // 并发接近限制且没有过载时逐步增加
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(10 * MILLIS, 20, false);
+        }
+        assertEquals(30, limit.getLimit());
+        // 并发远小于限制时不增加
+        limit.onSample(10 * MILLIS, 1, false);
+        assertEquals(30, limit.getLimit());
+        // 超时后乘性减小
+        limit.onSample(200 * MILLIS, 30, false);
+        assertEquals(27, limit.getLimit());
+        limit.onSample(10 * MILLIS, 27, true);
+        assertEquals(24, limit.getLimit());
+    }
+
+    @Test
+    public void testGradientLimit() {
+        GradientLimit limit = new GradientLimit(20, 1, 200, 1000 * MILLIS);
+        // 耗时稳定时限制增长
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(10 * MILLIS, limit.getLimit(), false);
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 20, "limit: " + grown);
+        // 耗时明显上升时限制下降，不需要等到超时
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(100 * MILLIS, limit.getLimit(), false);
+        }
+        assertTrue(limit.getLimit() < grown, "limit: " + limit.getLimit());
+    }
+}
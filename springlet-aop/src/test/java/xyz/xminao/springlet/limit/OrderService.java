@@ -0,0 +1,18 @@
+package xyz.xminao.springlet.limit;
+
+import xyz.xminao.springlet.annotation.ConcurrencyLimit;
+
+import java.util.concurrent.CountDownLatch;
+
+public class OrderService {
+
+    volatile CountDownLatch entered = new CountDownLatch(0);
+    volatile CountDownLatch release = new CountDownLatch(0);
+
+    @ConcurrencyLimit(value = "orders", algorithm = ConcurrencyLimit.Algorithm.AIMD, initialLimit = 2, minLimit = 2, maxLimit = 2)
+    public String placeOrder(String id) throws InterruptedException {
+        entered.countDown();
+        release.await();
+        return "order-" + id;
+    }
+}
@@ -0,0 +1,20 @@
+package xyz.xminao.springlet.metrics;
+
+import xyz.xminao.springlet.annotation.Timed;
+
+public class TimedBean {
+
+    @Timed("timed.hello")
+    public String hello(String name) {
+        return "Hello, " + name + ".";
+    }
+
+    @Timed
+    public void fail() {
+        throw new IllegalStateException("fail");
+    }
+
+    public String morning() {
+        return "Morning.";
+    }
+}
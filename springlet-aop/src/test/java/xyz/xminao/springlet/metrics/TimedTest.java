@@ -0,0 +1,112 @@
+package xyz.xminao.springlet.metrics;
+
+import org.junit.jupiter.api.Test;
+import xyz.xminao.springlet.annotation.Timed;
+import xyz.xminao.springlet.aop.metrics.LatencyHistogram;
+import xyz.xminao.springlet.aop.metrics.MethodMetrics;
+import xyz.xminao.springlet.aop.metrics.MetricsRegistry;
+import xyz.xminao.springlet.aop.metrics.TimedBeanPostProcessor;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimedTest {
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(5_000_500, snapshot.getMean(), 0.001);
+        // 对数-线性分桶的相对误差不超过1/16
+        assertEquals(5_000_000, snapshot.getValueAtPercentile(50), 5_000_000 / 16.0);
+        assertEquals(9_900_000, snapshot.getValueAtPercentile(99), 9_900_000 / 16.0);
+        assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testTimed() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        TimedBeanPostProcessor processor = new TimedBeanPostProcessor(registry);
+        TimedBean proxy = (TimedBean) processor.postProcessBeforeInitialization(new TimedBean(), "timedBean");
+        assertNotSame(TimedBean.class, proxy.getClass());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Hello, Minao.", proxy.hello("Minao"));
+        }
+        assertThrows(IllegalStateException.class, proxy::fail);
+        assertEquals("Morning.", proxy.morning());
+
+        MethodMetrics hello = registry.get("timed.hello");
+        assertEquals(100, hello.getCount());
+        assertEquals(0, hello.getErrorCount());
+        assertTrue(hello.get99thPercentile() > 0);
+        assertTrue(hello.get99thPercentile() <= hello.getMax());
+
+        MethodMetrics fail = registry.get(TimedBean.class.getName() + ".fail()");
+        assertEquals(1, fail.getCount());
+        assertEquals(1, fail.getErrorCount());
+        // 没有@Timed的方法不记录
+        assertEquals(2, registry.getAll().size());
+    }
+
+    @Test
+    public void testClassPrefixFromTargetClass() {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        TimedBeanPostProcessor processor = new TimedBeanPostProcessor(registry);
+        TimedBean plain = (TimedBean) processor.postProcessBeforeInitialization(new TimedBean(), "timedBean");
+        TimedBean child = (TimedBean) processor.postProcessBeforeInitialization(new ChildTimedBean(), "childTimedBean");
+        assertThrows(IllegalStateException.class, plain::fail);
+        assertThrows(IllegalStateException.class, child::fail);
+        assertThrows(IllegalStateException.class, child::fail);
+
+        // 继承的方法按目标类上的@Timed命名，不和父类共享指标
+        assertEquals(1, registry.get(TimedBean.class.getName() + ".fail()").getCount());
+        assertEquals(2, registry.get("child.fail()").getCount());
+    }
+
+    @Timed("child")
+    public static class ChildTimedBean extends TimedBean {
+    }
+
+    @Test
+    public void testOverloadsNamedSeparately() {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        TimedBeanPostProcessor processor = new TimedBeanPostProcessor(registry);
+        OverloadedBean proxy = (OverloadedBean) processor.postProcessBeforeInitialization(new OverloadedBean(), "overloadedBean");
+        assertEquals(1, proxy.sum(1));
+        assertEquals(1, proxy.sum(1));
+        assertEquals(3, proxy.sum(1, 2));
+
+        // 默认名包含参数类型，重载的方法不共用一个直方图
+        assertEquals(2, registry.get(OverloadedBean.class.getName() + ".sum(int)").getCount());
+        assertEquals(1, registry.get(OverloadedBean.class.getName() + ".sum(int,int)").getCount());
+    }
+
+    public static class OverloadedBean {
+        @Timed
+        public int sum(int a) {
+            return a;
+        }
+
+        @Timed
+        public int sum(int a, int b) {
+            return a + b;
+        }
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        registry.getOrCreate("timed.jmx").record(1000, false);
+        ObjectName name = new ObjectName("xyz.xminao.springlet:type=Timed,name=" + ObjectName.quote("timed.jmx"));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"));
+    }
+}
@@ -0,0 +1,17 @@
+package xyz.xminao.springlet.precompiled;
+
+import xyz.xminao.springlet.annotation.Around;
+import xyz.xminao.springlet.around.Polite;
+
+/**
+ * 构建期预生成代理类的Bean
+ */
+@Around("aroundInvocationHandler")
+public class PrecompiledBean {
+    public String name;
+
+    @Polite
+    public String hello() {
+        return "Hello, " + name + ".";
+    }
+}
@@ -0,0 +1,213 @@
+package xyz.xminao.springlet.utils;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扁平化配置的二进制缓存
+ *
+ * 首次解析yaml后将扁平的key/value写成紧凑的二进制文件，默认放在配置文件旁边（即构建输出目录），
+ * 之后启动时内存映射读取，源文件hash一致就不再解析yaml。
+ *
+ * 文件格式：magic | version | 源文件SHA-256 | 条目数 | (key, tag, value)...
+ * value只支持String和String列表，其他结构不写缓存。
+ *
+ * 配置项（系统属性）：
+ * springlet.config.cache=false 关闭缓存
+ * springlet.config.cache-dir=/path 指定缓存目录
+ */
+public class PlainConfigCache {
+
+    static final Logger logger = LoggerFactory.getLogger(PlainConfigCache.class);
+
+    static final int MAGIC = 0x53504C43; // "SPLC"
+    static final short VERSION = 1;
+    static final int HASH_LENGTH = 32;
+
+    static final byte TAG_STRING = 0;
+    static final byte TAG_LIST = 1;
+
+    final Path file;
+
+    public PlainConfigCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 根据classpath下的配置文件路径找到缓存文件位置，无法确定可写位置时返回null，即不使用缓存
+     */
+    @Nullable
+    public static PlainConfigCache forResource(String path) {
+        if ("false".equals(System.getProperty("springlet.config.cache"))) {
+            return null;
+        }
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        String fileName = path.replace('/', '_') + ".flat";
+        String dir = System.getProperty("springlet.config.cache-dir");
+        if (dir != null && !dir.isEmpty()) {
+            return new PlainConfigCache(Paths.get(dir, fileName));
+        }
+        // 只有配置文件在目录中（而不是jar包中）时才把缓存放到它旁边
+        URL url = ClassPathUtils.getContextClassLoader().getResource(path);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new PlainConfigCache(Paths.get(url.toURI()).resolveSibling(fileName));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static byte[] hash(byte[] source) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(source);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 读取缓存，文件不存在、格式不对或hash不一致时返回null
+     */
+    @Nullable
+    public Map<String, Object> read(byte[] hash) {
+        if (!Files.isRegularFile(this.file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 10 + HASH_LENGTH || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return null;
+            }
+            byte[] cachedHash = new byte[HASH_LENGTH];
+            buffer.get(cachedHash);
+            if (!Arrays.equals(cachedHash, hash)) {
+                return null;
+            }
+            int count = buffer.getInt();
+            Map<String, Object> plain = new LinkedHashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                byte tag = buffer.get();
+                if (tag == TAG_STRING) {
+                    plain.put(key, readString(buffer));
+                } else if (tag == TAG_LIST) {
+                    int size = buffer.getInt();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        list.add(readString(buffer));
+                    }
+                    plain.put(key, list);
+                } else {
+                    return null;
+                }
+            }
+            return plain;
+        } catch (IOException | RuntimeException e) {
+            logger.atDebug().log("ignore broken config cache {}: {}", this.file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存，先写临时文件再替换，写失败只记录日志
+     */
+    public void write(byte[] hash, Map<String, Object> plain) {
+        byte[] data;
+        try {
+            data = encode(hash, plain);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (data == null) {
+            logger.atDebug().log("skip config cache {}: unsupported value type", this.file);
+            return;
+        }
+        try {
+            Path dir = this.file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, this.file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, data);
+                Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            logger.atDebug().log("cannot write config cache {}: {}", this.file, e.toString());
+        }
+    }
+
+    @Nullable
+    static byte[] encode(byte[] hash, Map<String, Object> plain) throws IOException {
+        var bytes = new ByteArrayOutputStream(64 + plain.size() * 32);
+        var output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.write(hash);
+        output.writeInt(plain.size());
+        for (Map.Entry<String, Object> entry : plain.entrySet()) {
+            writeString(output, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof String s) {
+                output.writeByte(TAG_STRING);
+                writeString(output, s);
+            } else if (value instanceof List<?> list) {
+                output.writeByte(TAG_LIST);
+                output.writeInt(list.size());
+                for (Object item : list) {
+                    if (!(item instanceof String s)) {
+                        return null;
+                    }
+                    writeString(output, s);
+                }
+            } else {
+                return null;
+            }
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    static void writeString(DataOutputStream output, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(b.length);
+        output.write(b);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] b = new byte[buffer.getInt()];
+        buffer.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
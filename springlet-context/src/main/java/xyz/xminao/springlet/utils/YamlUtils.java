@@ -1,37 +1,84 @@
 package xyz.xminao.springlet.utils;
 
-import java.util.HashMap;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
 import org.yaml.snakeyaml.representer.Representer;
 import org.yaml.snakeyaml.resolver.Resolver;
 
 /**
  * 使用 snakeyaml 将 yaml 转为 map.
+ *
+ * 扁平化时直接消费 snakeyaml 的事件流，不再先构造完整的嵌套 Map；
+ * 扁平化结果会写入 PlainConfigCache，源文件未改变时下次启动直接读取缓存。
  */
 @SuppressWarnings("unused")
 public class YamlUtils {
 
+    static final Logger logger = LoggerFactory.getLogger(YamlUtils.class);
+
     @SuppressWarnings("unchecked")
     public static Map<String, Object> loadYaml(String path) {
-        var loaderOptions = new LoaderOptions();
-        var dumperOptions = new DumperOptions();
-        var representer = new Representer(dumperOptions);
-        var resolver = new NoImplicitResolver();
-        var yaml = new Yaml(new Constructor(loaderOptions), representer, dumperOptions, loaderOptions, resolver);
+        var yaml = createYaml();
         return ClassPathUtils.readInputStream(path, (input) -> {
             return (Map<String, Object>) yaml.load(input);
         });
     }
 
     public static Map<String, Object> loadYamlAsPlainMap(String path) {
-        Map<String, Object> data = loadYaml(path);
+        byte[] source = ClassPathUtils.readInputStream(path, (input) -> input.readAllBytes());
+        // 先查二进制缓存，源文件hash一致则跳过解析
+        PlainConfigCache cache = PlainConfigCache.forResource(path);
+        byte[] hash = null;
+        if (cache != null) {
+            hash = PlainConfigCache.hash(source);
+            Map<String, Object> cached = cache.read(hash);
+            if (cached != null) {
+                logger.atDebug().log("load flattened config {} from cache {}", path, cache.getFile());
+                return cached;
+            }
+        }
+        Map<String, Object> plain = parseAsPlainMap(source);
+        if (cache != null) {
+            cache.write(hash, plain);
+        }
+        return plain;
+    }
+
+    /**
+     * 将yaml内容扁平化，遇到事件流不支持的写法（锚点、合并、复杂key等）时退回到构造完整Map再转换
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseAsPlainMap(byte[] source) {
+        try {
+            return flattenEvents(source);
+        } catch (UnsupportedEventException e) {
+            logger.atDebug().log("fallback to object graph flatten: {}", e.getMessage());
+        }
+        Map<String, Object> data = (Map<String, Object>) createYaml().load(new ByteArrayInputStream(source));
         Map<String, Object> plain = new LinkedHashMap<>();
         convertTo(data, "", plain);
         return plain;
@@ -51,6 +98,125 @@ public class YamlUtils {
             }
         }
     }
+
+    /**
+     * 基于事件流扁平化，key前缀复用同一个StringBuilder，只在写入时生成一次完整key
+     */
+    static Map<String, Object> flattenEvents(byte[] source) {
+        Map<String, Object> plain = new LinkedHashMap<>();
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8);
+        Iterator<Event> events = createYaml().parse(reader).iterator();
+        expect(events.next(), StreamStartEvent.class);
+        Event e = events.next();
+        if (e instanceof StreamEndEvent) {
+            return plain;
+        }
+        expect(e, DocumentStartEvent.class);
+        e = events.next();
+        if (e instanceof MappingStartEvent) {
+            flattenMapping(events, new StringBuilder(), plain);
+            e = events.next();
+        } else if (!(e instanceof DocumentEndEvent)) {
+            throw new UnsupportedEventException("root node is not a mapping");
+        }
+        expect(e, DocumentEndEvent.class);
+        // 多文档交给snakeyaml原有逻辑处理
+        expect(events.next(), StreamEndEvent.class);
+        return plain;
+    }
+
+    static void flattenMapping(Iterator<Event> events, StringBuilder prefix, Map<String, Object> plain) {
+        while (true) {
+            Event e = events.next();
+            if (e instanceof MappingEndEvent) {
+                return;
+            }
+            String key = scalarValue(e);
+            int mark = prefix.length();
+            prefix.append(key);
+            Event value = events.next();
+            if (value instanceof MappingStartEvent) {
+                prefix.append('.');
+                flattenMapping(events, prefix, plain);
+            } else if (value instanceof SequenceStartEvent) {
+                plain.put(prefix.toString(), readSequence(events));
+            } else {
+                plain.put(prefix.toString(), scalarValue(value));
+            }
+            prefix.setLength(mark);
+        }
+    }
+
+    /**
+     * 列表保持原有行为，作为整体放入扁平Map
+     */
+    static List<Object> readSequence(Iterator<Event> events) {
+        List<Object> list = new ArrayList<>();
+        while (true) {
+            Event e = events.next();
+            if (e instanceof SequenceEndEvent) {
+                return list;
+            }
+            list.add(readNode(e, events));
+        }
+    }
+
+    static Map<String, Object> readMapping(Iterator<Event> events) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (true) {
+            Event e = events.next();
+            if (e instanceof MappingEndEvent) {
+                return map;
+            }
+            String key = scalarValue(e);
+            map.put(key, readNode(events.next(), events));
+        }
+    }
+
+    static Object readNode(Event e, Iterator<Event> events) {
+        if (e instanceof MappingStartEvent) {
+            return readMapping(events);
+        }
+        if (e instanceof SequenceStartEvent) {
+            return readSequence(events);
+        }
+        return scalarValue(e);
+    }
+
+    static String scalarValue(Event e) {
+        if (e instanceof ScalarEvent scalar) {
+            String tag = scalar.getTag();
+            // 显式tag（如 !!binary）交给Constructor处理
+            if (tag == null || tag.equals("!") || tag.equals("tag:yaml.org,2002:str")) {
+                return scalar.getValue();
+            }
+            throw new UnsupportedEventException("tag " + tag);
+        }
+        throw new UnsupportedEventException("event " + e.getEventId());
+    }
+
+    static void expect(Event e, Class<? extends Event> type) {
+        if (!type.isInstance(e)) {
+            throw new UnsupportedEventException("event " + e.getEventId());
+        }
+    }
+
+    static Yaml createYaml() {
+        var loaderOptions = new LoaderOptions();
+        var dumperOptions = new DumperOptions();
+        var representer = new Representer(dumperOptions);
+        var resolver = new NoImplicitResolver();
+        return new Yaml(new Constructor(loaderOptions), representer, dumperOptions, loaderOptions, resolver);
+    }
+
+    /**
+     * 事件流扁平化不支持的结构，捕获后退回原有解析方式
+     */
+    static class UnsupportedEventException extends RuntimeException {
+        UnsupportedEventException(String message) {
+            super(message, null, false, false);
+        }
+    }
 }
 
 /**
@@ -0,0 +1,63 @@
+package xyz.xminao.springlet;
+
+import org.junit.Test;
+import xyz.xminao.springlet.utils.PlainConfigCache;
+import xyz.xminao.springlet.utils.YamlUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class YamlUtilsTest {
+    @Test
+    public void flattenTest() {
+        Map<String, Object> plain = YamlUtils.loadYamlAsPlainMap("flatten.yml");
+        assertEquals("jdbc:sqlite:test.db", plain.get("springlet.datasource.url"));
+        assertEquals("", plain.get("springlet.datasource.password"));
+        assertEquals("10", plain.get("springlet.datasource.maximum-pool-size"));
+        assertEquals(List.of("alpha", "beta"), plain.get("springlet.servers"));
+        assertEquals("Springlet 框架", plain.get("app.title"));
+        assertEquals("1.0", plain.get("app.version"));
+        // 列表中的Map保持原有结构
+        List<?> routes = (List<?>) plain.get("springlet.routes");
+        assertEquals(Map.of("path", "/a", "port", "8080"), routes.get(0));
+
+        // 与原有的先构造Map再扁平化的结果一致
+        Map<String, Object> expected = new LinkedHashMap<>();
+        flatten(YamlUtils.loadYaml("flatten.yml"), "", expected);
+        assertEquals(expected, plain);
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(plain.keySet()));
+    }
+
+    @Test
+    public void cacheTest() throws Exception {
+        Path dir = Files.createTempDirectory("springlet-config");
+        PlainConfigCache cache = new PlainConfigCache(dir.resolve("flatten.yml.flat"));
+        Map<String, Object> plain = new LinkedHashMap<>();
+        plain.put("a.b", "1");
+        plain.put("a.c", List.of("x", "y"));
+        byte[] hash = PlainConfigCache.hash("a:\n  b: 1".getBytes());
+        assertNull(cache.read(hash));
+
+        cache.write(hash, plain);
+        Map<String, Object> cached = cache.read(hash);
+        assertEquals(plain, cached);
+        // 源文件改变后缓存失效
+        assertNull(cache.read(PlainConfigCache.hash("a:\n  b: 2".getBytes())));
+    }
+
+    @SuppressWarnings("unchecked")
+    static void flatten(Map<String, Object> source, String prefix, Map<String, Object> plain) {
+        source.forEach((key, value) -> {
+            if (value instanceof Map) {
+                flatten((Map<String, Object>) value, prefix + key + ".", plain);
+            } else {
+                plain.put(prefix + key, value instanceof List ? value : value.toString());
+            }
+        });
+    }
+}
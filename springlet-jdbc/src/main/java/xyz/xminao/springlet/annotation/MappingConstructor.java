@@ -0,0 +1,14 @@
+package xyz.xminao.springlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注BeanRowMapper把行映射为对象时使用的构造方法，构造方法的参数按名字和列标签对应
+ * 没有使用-parameters编译时通过value()按顺序指定参数名
+ */
+@Target(ElementType.CONSTRUCTOR)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface MappingConstructor {
+    String[] value() default {};
+}
@@ -1,11 +1,56 @@
 package xyz.xminao.springlet.annotation;
 
 import java.lang.annotation.*;
+import java.sql.Connection;
 
-@Target(ElementType.TYPE)
+/**
+ * 声明式事务，可以标注在类上（拦截所有业务方法）或方法上，方法上的属性优先
+ * 事务属性按方法解析一次并缓存
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 @Inherited
 public @interface Transactional {
+
+    // 事务管理器bean的名字
     String value() default "platformTransactionManager";
+
+    Propagation propagation() default Propagation.REQUIRED;
+
+    Isolation isolation() default Isolation.DEFAULT;
+
+    // 只读事务调用Connection.setReadOnly(true)，并且可以被ReadWriteRoutingDataSource路由到只读副本
+    boolean readOnly() default false;
+
+    // 超时秒数，-1表示不限制，事务中的每条语句以剩余时间作为查询超时
+    int timeout() default -1;
+
+    enum Propagation {
+        // 有事务就加入，没有就创建
+        REQUIRED,
+        // 有事务就加入，没有就不使用事务
+        SUPPORTS,
+        // 挂起当前事务，使用新连接创建新事务
+        REQUIRES_NEW,
+        // 挂起当前事务，不使用事务执行
+        NOT_SUPPORTED,
+        // 有事务时在当前连接上创建保存点，异常时只回滚到保存点；没有事务时和REQUIRED相同
+        NESTED
+    }
+
+    enum Isolation {
+        // 使用连接的默认隔离级别
+        DEFAULT(-1),
+        READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+        READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+        REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+        SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+        public final int level;
+
+        Isolation(int level) {
+            this.level = level;
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package xyz.xminao.springlet.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * JdbcTemplate.batchUpdate()中为每一行设置参数的回调
+ */
+public interface BatchPreparedStatementSetter {
+
+    /**
+     * 设置第i行（从0开始）的参数
+     */
+    void setValues(PreparedStatement ps, int i) throws SQLException;
+
+    /**
+     * 总行数
+     */
+    int getBatchSize();
+}
@@ -1,76 +1,271 @@
 package xyz.xminao.springlet.jdbc;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import xyz.xminao.springlet.annotation.MappingConstructor;
 import xyz.xminao.springlet.exception.DataAccessException;
 
+/**
+ * 把每一行映射为对象，列标签和构造方法的参数名、setter对应的属性名或public字段名相同时写入
+ * 使用的构造方法依次为：record的标准构造方法、@MappingConstructor标注的构造方法、public无参构造方法、唯一的public构造方法。
+ * 列和参数、属性的对应关系按ResultSet的列结构计算一次并缓存，映射每一行时按列序号调用类型化的getter，
+ * 通过一个MethodHandle调用构造方法并写入属性，不查询元数据、不查找Map、不使用反射调用。
+ */
 public class BeanRowMapper<T> implements RowMapper<T> {
 
     final Logger logger = LoggerFactory.getLogger(getClass());
 
-    Class<T> clazz;
-    Constructor<T> constructor;
-    Map<String, Field> fields = new HashMap<>();
-    Map<String, Method> methods = new HashMap<>();
+    // 按Class共享的BeanRowMapper，保存在Class上，不阻止ClassLoader卸载
+    static final ClassValue<BeanRowMapper<?>> mappers = new ClassValue<>() {
+        @Override
+        protected BeanRowMapper<?> computeValue(Class<?> type) {
+            return new BeanRowMapper<>(type);
+        }
+    };
+
+    final Class<T> clazz;
+    // 创建对象的构造方法，参数名和参数一一对应，无参构造方法时为空数组
+    final Constructor<T> constructor;
+    final String[] parameterNames;
+    // 属性名 -> 属性，setter优先于同名字段
+    final Map<String, Property> properties = new HashMap<>();
+    // 列标签 -> 映射计划
+    final Map<List<String>, RowPlan<T>> plans = new ConcurrentHashMap<>();
 
     public BeanRowMapper(Class<T> clazz) {
         this.clazz = clazz;
+        this.constructor = findConstructor(clazz);
+        this.parameterNames = getParameterNames(this.constructor);
+        if (this.parameterNames.length > 0) {
+            logger.atDebug().log("Add row mapping: {} to constructor of {}", Arrays.toString(this.parameterNames), clazz.getSimpleName());
+        }
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
         try {
-            this.constructor = clazz.getConstructor();
-        } catch (ReflectiveOperationException e) {
-            throw new DataAccessException(String.format("No public default constructor found for class %s when build BeanRowMapper.", clazz.getName()), e);
-        }
-        for (Field f : clazz.getFields()) {
-            String name = f.getName();
-            this.fields.put(name, f);
-            logger.atDebug().log("Add row mapping: {} to field {}", name, name);
-        }
-        for (Method m : clazz.getMethods()) {
-            Parameter[] ps = m.getParameters();
-            if (ps.length == 1) {
-                String name = m.getName();
-                if (name.length() >= 4 && name.startsWith("set")) {
-                    String prop = Character.toLowerCase(name.charAt(3)) + name.substring(4);
-                    this.methods.put(prop, m);
-                    logger.atDebug().log("Add row mapping: {} to {}({})", prop, name, ps[0].getType().getSimpleName());
+            for (Field f : clazz.getFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || Modifier.isFinal(f.getModifiers())) {
+                    continue;
+                }
+                String name = f.getName();
+                this.properties.put(name, new Property(f.getType(), lookup.unreflectSetter(f), f));
+                logger.atDebug().log("Add row mapping: {} to field {}", name, name);
+            }
+            for (Method m : clazz.getMethods()) {
+                Parameter[] ps = m.getParameters();
+                if (ps.length == 1 && !Modifier.isStatic(m.getModifiers())) {
+                    String name = m.getName();
+                    if (name.length() >= 4 && name.startsWith("set")) {
+                        String prop = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                        this.properties.put(prop, new Property(ps[0].getType(), lookup.unreflect(m), m));
+                        logger.atDebug().log("Add row mapping: {} to {}({})", prop, name, ps[0].getType().getSimpleName());
+                    }
                 }
             }
+        } catch (IllegalAccessException e) {
+            throw new DataAccessException(String.format("Cannot access property of class %s when build BeanRowMapper.", clazz.getName()), e);
         }
     }
 
+    /**
+     * 获取clazz共享的BeanRowMapper，属性和映射计划只计算一次，可以被所有线程同时使用
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> of(Class<T> clazz) {
+        return (BeanRowMapper<T>) mappers.get(clazz);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Constructor<T> findConstructor(Class<T> clazz) {
+        try {
+            if (clazz.isRecord()) {
+                Class<?>[] types = Arrays.stream(clazz.getRecordComponents()).map(RecordComponent::getType).toArray(Class<?>[]::new);
+                return clazz.getConstructor(types);
+            }
+            Constructor<?>[] constructors = clazz.getConstructors();
+            for (Constructor<?> c : constructors) {
+                if (c.isAnnotationPresent(MappingConstructor.class)) {
+                    return (Constructor<T>) c;
+                }
+            }
+            for (Constructor<?> c : constructors) {
+                if (c.getParameterCount() == 0) {
+                    return (Constructor<T>) c;
+                }
+            }
+            if (constructors.length == 1) {
+                return (Constructor<T>) constructors[0];
+            }
+        } catch (NoSuchMethodException e) {
+            throw new DataAccessException(String.format("No public canonical constructor found for record %s when build BeanRowMapper.", clazz.getName()), e);
+        }
+        throw new DataAccessException(String.format("No public default, canonical or @MappingConstructor constructor found for class %s when build BeanRowMapper.", clazz.getName()));
+    }
+
+    static String[] getParameterNames(Constructor<?> constructor) {
+        Class<?> clazz = constructor.getDeclaringClass();
+        if (clazz.isRecord()) {
+            return Arrays.stream(clazz.getRecordComponents()).map(RecordComponent::getName).toArray(String[]::new);
+        }
+        MappingConstructor anno = constructor.getAnnotation(MappingConstructor.class);
+        if (anno != null && anno.value().length > 0) {
+            if (anno.value().length != constructor.getParameterCount()) {
+                throw new DataAccessException(String.format("@MappingConstructor of class %s specifies %d names for %d parameters.",
+                        clazz.getName(), anno.value().length, constructor.getParameterCount()));
+            }
+            return anno.value();
+        }
+        Parameter[] ps = constructor.getParameters();
+        String[] names = new String[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            if (!ps[i].isNamePresent()) {
+                throw new DataAccessException(String.format("Parameter names of constructor %s are not available, compile with -parameters or specify them by @MappingConstructor.", constructor));
+            }
+            names[i] = ps[i].getName();
+        }
+        return names;
+    }
+
+    /**
+     * 直接调用时每一行都要读取列标签查找映射计划，批量映射应该先调用prepare()
+     */
     @Override
     public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-        T bean;
+        return prepare(rs).mapRow(rs, rowNum);
+    }
+
+    /**
+     * 返回该ResultSet列结构对应的映射计划，相同列标签的ResultSet共享一个计划
+     */
+    @Override
+    public RowMapper<T> prepare(ResultSet rs) throws SQLException {
+        List<String> labels = getColumnLabels(rs.getMetaData());
+        RowPlan<T> plan = this.plans.get(labels);
+        if (plan == null) {
+            plan = this.plans.computeIfAbsent(labels, this::createPlan);
+        }
+        return plan;
+    }
+
+    static List<String> getColumnLabels(ResultSetMetaData meta) throws SQLException {
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1);
+        }
+        return Arrays.asList(labels);
+    }
+
+    /**
+     * 构造方法参数对应的列序号，没有对应的列时为0，参数使用null或基本类型的默认值
+     */
+    int[] getParameterColumns(List<String> labels) {
+        int[] columns = new int[this.parameterNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = labels.indexOf(this.parameterNames[i]) + 1;
+        }
+        return columns;
+    }
+
+    RowPlan<T> createPlan(List<String> labels) {
+        int[] parameterColumns = getParameterColumns(labels);
+        List<ColumnWriter> writers = new ArrayList<>();
+        for (int i = 0; i < labels.size(); i++) {
+            Property property = this.properties.get(labels.get(i));
+            if (property != null && !isParameterColumn(parameterColumns, i + 1)) {
+                writers.add(ColumnWriter.of(i + 1, property.type(), property.setter()));
+            }
+        }
+        logger.atDebug().log("Create row mapping plan for {}: {}", this.clazz.getName(), labels);
+        return new RowPlan<>(this.clazz, createFactory(parameterColumns), writers.toArray(new ColumnWriter[0]));
+    }
+
+    static boolean isParameterColumn(int[] parameterColumns, int column) {
+        for (int c : parameterColumns) {
+            if (c == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把构造方法和每个参数的getter组合为一个(ResultSet)Object的MethodHandle，映射每一行只调用一次
+     */
+    MethodHandle createFactory(int[] parameterColumns) {
+        MethodHandle handle;
         try {
-            bean = this.constructor.newInstance();
-            ResultSetMetaData meta = rs.getMetaData();
-            int columns = meta.getColumnCount();
-            for (int i = 1; i <= columns; i++) {
-                String label = meta.getColumnLabel(i);
-                Method method = this.methods.get(label);
-                if (method != null) {
-                    method.invoke(bean, rs.getObject(label));
-                } else {
-                    Field field = this.fields.get(label);
-                    if (field != null) {
-                        field.set(bean, rs.getObject(label));
-                    }
+            handle = MethodHandles.publicLookup().unreflectConstructor(this.constructor);
+        } catch (IllegalAccessException e) {
+            throw new DataAccessException(String.format("Cannot access constructor of class %s when build BeanRowMapper.", this.clazz.getName()), e);
+        }
+        Class<?>[] types = this.constructor.getParameterTypes();
+        MethodHandle[] getters = new MethodHandle[types.length];
+        for (int i = 0; i < types.length; i++) {
+            getters[i] = parameterColumns[i] > 0
+                    ? ColumnWriter.getterHandle(types[i], parameterColumns[i])
+                    : MethodHandles.dropArguments(MethodHandles.zero(types[i]), 0, ResultSet.class);
+        }
+        // (ResultSet, ResultSet, ...) -> T，再把所有参数合并为同一个ResultSet，无参构造方法时忽略ResultSet
+        handle = MethodHandles.filterArguments(handle, 0, getters);
+        handle = MethodHandles.permuteArguments(handle, MethodType.methodType(this.clazz, ResultSet.class), new int[types.length]);
+        return handle.asType(MethodType.methodType(Object.class, ResultSet.class));
+    }
+
+    /**
+     * 可写入的属性，member是setter方法或public字段
+     */
+    record Property(Class<?> type, MethodHandle setter, Member member) {
+    }
+
+    /**
+     * 一种列结构的映射计划，映射每一行时只调用一次构造方法和每个有对应属性的列的ColumnWriter
+     */
+    static final class RowPlan<T> implements RowMapper<T> {
+
+        final Class<T> clazz;
+        // (ResultSet)Object，读取构造方法参数对应的列并创建对象
+        final MethodHandle factory;
+        final ColumnWriter[] writers;
+
+        RowPlan(Class<T> clazz, MethodHandle factory, ColumnWriter[] writers) {
+            this.clazz = clazz;
+            this.factory = factory;
+            this.writers = writers;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+            try {
+                Object bean = (Object) this.factory.invokeExact(rs);
+                for (ColumnWriter writer : this.writers) {
+                    writer.write(bean, rs);
                 }
+                return (T) bean;
+            } catch (SQLException | DataAccessException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                // 例如列的值和属性类型不匹配
+                throw new DataAccessException(String.format("Could not map result set to class %s", this.clazz.getName()), e);
             }
-        } catch (ReflectiveOperationException e) {
-            throw new DataAccessException(String.format("Could not map result set to class %s", this.clazz.getName()), e);
         }
-        return bean;
     }
 }
-
@@ -0,0 +1,177 @@
+package xyz.xminao.springlet.jdbc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * 把ResultSet中一列的值写入Bean的一个属性
+ * 按属性类型选择ResultSet的类型化getter，按列序号读取，通过MethodHandle调用setter或写入字段，基本类型不装箱
+ */
+abstract class ColumnWriter {
+
+    final int index;
+
+    ColumnWriter(int index) {
+        this.index = index;
+    }
+
+    abstract void write(Object bean, ResultSet rs) throws Throwable;
+
+    /**
+     * @param index 列序号，从1开始
+     * @param type 属性类型
+     * @param setter 签名为(Bean, type)void的MethodHandle
+     */
+    static ColumnWriter of(int index, Class<?> type, MethodHandle setter) {
+        MethodHandle handle = setter.asType(MethodType.methodType(void.class, Object.class, type));
+        if (type == int.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getInt(this.index));
+                }
+            };
+        }
+        if (type == long.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getLong(this.index));
+                }
+            };
+        }
+        if (type == double.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getDouble(this.index));
+                }
+            };
+        }
+        if (type == float.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getFloat(this.index));
+                }
+            };
+        }
+        if (type == short.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getShort(this.index));
+                }
+            };
+        }
+        if (type == byte.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getByte(this.index));
+                }
+            };
+        }
+        if (type == boolean.class) {
+            return new ColumnWriter(index) {
+                @Override
+                void write(Object bean, ResultSet rs) throws Throwable {
+                    handle.invokeExact(bean, rs.getBoolean(this.index));
+                }
+            };
+        }
+        // 引用类型统一按Object传递
+        MethodHandle objectHandle = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        ColumnGetter getter = getterFor(type);
+        return new ColumnWriter(index) {
+            @Override
+            void write(Object bean, ResultSet rs) throws Throwable {
+                objectHandle.invokeExact(bean, getter.get(rs, this.index));
+            }
+        };
+    }
+
+    /**
+     * 引用类型属性使用的getter，包装类型在列为NULL时返回null
+     */
+    static ColumnGetter getterFor(Class<?> type) {
+        if (type == String.class) {
+            return ResultSet::getString;
+        }
+        if (type == Integer.class) {
+            return ResultSetGetters::getInteger;
+        }
+        if (type == Long.class) {
+            return ResultSetGetters::getLong;
+        }
+        if (type == Double.class) {
+            return ResultSetGetters::getDouble;
+        }
+        if (type == Float.class) {
+            return ResultSetGetters::getFloat;
+        }
+        if (type == Short.class) {
+            return ResultSetGetters::getShort;
+        }
+        if (type == Byte.class) {
+            return ResultSetGetters::getByte;
+        }
+        if (type == Boolean.class) {
+            return ResultSetGetters::getBoolean;
+        }
+        if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        }
+        if (type == byte[].class) {
+            return ResultSet::getBytes;
+        }
+        if (type == Timestamp.class) {
+            return ResultSet::getTimestamp;
+        }
+        if (type == Date.class) {
+            return ResultSet::getDate;
+        }
+        if (type == Time.class) {
+            return ResultSet::getTime;
+        }
+        // 其他类型交给驱动转换，类型不匹配时写入属性会抛出ClassCastException
+        return ResultSet::getObject;
+    }
+
+    /**
+     * 读取指定列的(ResultSet)type的MethodHandle，和getterFor()使用相同的getter
+     */
+    static MethodHandle getterHandle(Class<?> type, int index) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle;
+        try {
+            if (type.isPrimitive()) {
+                String name = "get" + Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+                handle = lookup.findVirtual(ResultSet.class, name, MethodType.methodType(type, int.class));
+            } else if (type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                    || type == Short.class || type == Byte.class || type == Boolean.class) {
+                handle = lookup.findStatic(ResultSetGetters.class, "get" + type.getSimpleName(), MethodType.methodType(type, ResultSet.class, int.class));
+            } else {
+                // 引用类型和ColumnWriter使用同一个getter
+                ColumnGetter getter = getterFor(type);
+                handle = lookup.findVirtual(ColumnGetter.class, "get", MethodType.methodType(Object.class, ResultSet.class, int.class))
+                        .bindTo(getter).asType(MethodType.methodType(type, ResultSet.class, int.class));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return MethodHandles.insertArguments(handle, 1, index);
+    }
+
+    @FunctionalInterface
+    interface ColumnGetter {
+        Object get(ResultSet rs, int index) throws SQLException;
+    }
+}
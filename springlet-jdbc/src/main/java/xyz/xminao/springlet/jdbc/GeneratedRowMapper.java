@@ -0,0 +1,230 @@
+package xyz.xminao.springlet.jdbc;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.xminao.springlet.exception.DataAccessException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 为每个类的每种列结构生成一个专用的RowMapper类，和BeanRowMapper的映射规则相同
+ * 生成的mapRow()直接调用构造方法、setter或写入public字段，按列序号调用类型化的getter，没有MethodHandle和反射调用，
+ * 适合映射大量行。生成的类优先定义为隐藏类，不再使用后可以被卸载。
+ */
+public class GeneratedRowMapper<T> implements RowMapper<T> {
+
+    static final Logger logger = LoggerFactory.getLogger(GeneratedRowMapper.class);
+
+    static final String CLASS_NAME_SUFFIX = "$$SpringletRowMapper$$";
+
+    static final ClassValue<GeneratedRowMapper<?>> mappers = new ClassValue<>() {
+        @Override
+        protected GeneratedRowMapper<?> computeValue(Class<?> type) {
+            return new GeneratedRowMapper<>(type);
+        }
+    };
+
+    final Class<T> clazz;
+    // 复用BeanRowMapper解析的属性
+    final BeanRowMapper<T> beanRowMapper;
+    // 列标签 -> 生成的RowMapper
+    final Map<List<String>, RowMapper<T>> plans = new ConcurrentHashMap<>();
+
+    public GeneratedRowMapper(Class<T> clazz) {
+        this.clazz = clazz;
+        this.beanRowMapper = BeanRowMapper.of(clazz);
+    }
+
+    /**
+     * 获取clazz共享的GeneratedRowMapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedRowMapper<T> of(Class<T> clazz) {
+        return (GeneratedRowMapper<T>) mappers.get(clazz);
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return prepare(rs).mapRow(rs, rowNum);
+    }
+
+    @Override
+    public RowMapper<T> prepare(ResultSet rs) throws SQLException {
+        List<String> labels = BeanRowMapper.getColumnLabels(rs.getMetaData());
+        RowMapper<T> mapper = this.plans.get(labels);
+        if (mapper == null) {
+            mapper = this.plans.computeIfAbsent(labels, this::generate);
+        }
+        return mapper;
+    }
+
+    @SuppressWarnings("unchecked")
+    RowMapper<T> generate(List<String> labels) {
+        int[] parameterColumns = this.beanRowMapper.getParameterColumns(labels);
+        List<Column> columns = new ArrayList<>();
+        for (int i = 0; i < labels.size(); i++) {
+            BeanRowMapper.Property property = this.beanRowMapper.properties.get(labels.get(i));
+            if (property != null && !BeanRowMapper.isParameterColumn(parameterColumns, i + 1)) {
+                columns.add(new Column(i + 1, property));
+            }
+        }
+        String name = this.clazz.getName() + CLASS_NAME_SUFFIX + Integer.toHexString(String.join(",", labels).hashCode());
+        logger.atDebug().log("generate row mapper {} for columns {}", name, labels);
+        DynamicType.Unloaded<?> type = new ByteBuddy()
+                .subclass(TypeDescription.Generic.Builder.parameterizedType(RowMapper.class, this.clazz).build())
+                .name(name)
+                .method(ElementMatchers.named("mapRow").and(ElementMatchers.takesArguments(ResultSet.class, int.class)))
+                .intercept(new Implementation.Simple(new MapRowAppender(this.beanRowMapper.constructor, parameterColumns, columns)))
+                .make();
+        try {
+            return (RowMapper<T>) newInstance(type);
+        } catch (Throwable e) {
+            throw new DataAccessException(String.format("Cannot generate row mapper for class %s", this.clazz.getName()), e);
+        }
+    }
+
+    /**
+     * 在被映射类的包中定义隐藏类，无法获得完整访问权限时由ByteBuddy加载为普通类
+     */
+    Object newInstance(DynamicType.Unloaded<?> type) throws Throwable {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(this.clazz, MethodHandles.lookup());
+            if (lookup.hasFullPrivilegeAccess()) {
+                MethodHandles.Lookup hidden = lookup.defineHiddenClass(type.getBytes(), true);
+                return hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+            }
+        } catch (IllegalAccessException e) {
+            logger.atDebug().log("cannot define hidden row mapper for {}: {}", this.clazz.getName(), e.toString());
+        }
+        return type.load(this.clazz.getClassLoader()).getLoaded().getConstructor().newInstance();
+    }
+
+    record Column(int index, BeanRowMapper.Property property) {
+    }
+
+    /**
+     * 生成mapRow(ResultSet rs, int rowNum)：
+     * T bean = new T(rs.getLong(1), ...); bean.setA(rs.getInt(2)); bean.b = rs.getString(3); ... return bean;
+     */
+    record MapRowAppender(Constructor<?> constructor, int[] parameterColumns, List<Column> columns) implements ByteCodeAppender {
+
+        static final String RESULT_SET = Type.getInternalName(ResultSet.class);
+        static final String GETTERS = Type.getInternalName(ResultSetGetters.class);
+
+        @Override
+        public Size apply(MethodVisitor mv, Implementation.Context context, MethodDescription method) {
+            String owner = Type.getInternalName(this.constructor.getDeclaringClass());
+            mv.visitTypeInsn(Opcodes.NEW, owner);
+            mv.visitInsn(Opcodes.DUP);
+            // 构造方法参数：有对应列时读取该列，否则使用null或基本类型的默认值
+            Class<?>[] parameterTypes = this.constructor.getParameterTypes();
+            int stack = 2;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Class<?> type = parameterTypes[i];
+                if (this.parameterColumns[i] > 0) {
+                    mv.visitVarInsn(Opcodes.ALOAD, 1);
+                    mv.visitLdcInsn(this.parameterColumns[i]);
+                    readColumn(mv, type);
+                } else {
+                    pushDefault(mv, type);
+                }
+                stack += Type.getType(type).getSize();
+            }
+            // 读取最后一个参数时栈上还有rs和列序号
+            int maxStack = Math.max(4, stack + 2);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", Type.getConstructorDescriptor(this.constructor), false);
+            mv.visitVarInsn(Opcodes.ASTORE, 3);
+            for (Column column : this.columns) {
+                Class<?> type = column.property().type();
+                mv.visitVarInsn(Opcodes.ALOAD, 3);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitLdcInsn(column.index());
+                readColumn(mv, type);
+                if (column.property().member() instanceof Method setter) {
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, setter.getName(), Type.getMethodDescriptor(setter), false);
+                    // 返回this的链式setter
+                    Class<?> returnType = setter.getReturnType();
+                    if (returnType == long.class || returnType == double.class) {
+                        mv.visitInsn(Opcodes.POP2);
+                    } else if (returnType != void.class) {
+                        mv.visitInsn(Opcodes.POP);
+                    }
+                } else {
+                    Field field = (Field) column.property().member();
+                    mv.visitFieldInsn(Opcodes.PUTFIELD, Type.getInternalName(field.getDeclaringClass()), field.getName(), Type.getDescriptor(type));
+                }
+            }
+            mv.visitVarInsn(Opcodes.ALOAD, 3);
+            mv.visitInsn(Opcodes.ARETURN);
+            // 写入属性时操作数栈最多是bean、long/double返回值，或bean、rs、列序号；局部变量：this、rs、rowNum、bean
+            return new Size(maxStack, 4);
+        }
+
+        static void pushDefault(MethodVisitor mv, Class<?> type) {
+            if (type == long.class) {
+                mv.visitInsn(Opcodes.LCONST_0);
+            } else if (type == double.class) {
+                mv.visitInsn(Opcodes.DCONST_0);
+            } else if (type == float.class) {
+                mv.visitInsn(Opcodes.FCONST_0);
+            } else if (type.isPrimitive()) {
+                mv.visitInsn(Opcodes.ICONST_0);
+            } else {
+                mv.visitInsn(Opcodes.ACONST_NULL);
+            }
+        }
+
+        /**
+         * 栈上是rs和列序号，调用和属性类型对应的getter，留下属性类型的值
+         */
+        static void readColumn(MethodVisitor mv, Class<?> type) {
+            if (type.isPrimitive()) {
+                String name = "get" + Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, name, "(I)" + Type.getDescriptor(type), true);
+            } else if (type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                    || type == Short.class || type == Byte.class || type == Boolean.class) {
+                String name = "get" + type.getSimpleName();
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, GETTERS, name, "(L" + RESULT_SET + ";I)" + Type.getDescriptor(type), false);
+            } else if (type == String.class) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getString", "(I)Ljava/lang/String;", true);
+            } else if (type == BigDecimal.class) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getBigDecimal", "(I)Ljava/math/BigDecimal;", true);
+            } else if (type == byte[].class) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getBytes", "(I)[B", true);
+            } else if (type == Timestamp.class) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getTimestamp", "(I)Ljava/sql/Timestamp;", true);
+            } else if (type == Date.class) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getDate", "(I)Ljava/sql/Date;", true);
+            } else if (type == Time.class) {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getTime", "(I)Ljava/sql/Time;", true);
+            } else {
+                mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, RESULT_SET, "getObject", "(I)Ljava/lang/Object;", true);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+            }
+        }
+    }
+}
@@ -6,16 +6,22 @@ import xyz.xminao.springlet.annotation.Autowired;
 import xyz.xminao.springlet.annotation.Bean;
 import xyz.xminao.springlet.annotation.Configuration;
 import xyz.xminao.springlet.annotation.Value;
+import xyz.xminao.springlet.jdbc.datasource.ReadWriteRoutingDataSource;
+import xyz.xminao.springlet.jdbc.datasource.StatementCachingDataSource;
+import xyz.xminao.springlet.jdbc.namedparam.NamedParameterJdbcTemplate;
 import xyz.xminao.springlet.jdbc.tx.DataSourceTransactionManager;
 import xyz.xminao.springlet.jdbc.tx.PlatformTransactionManager;
 import xyz.xminao.springlet.jdbc.tx.TransactionalBeanPostProcessor;
 
 import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class JdbcConfiguration {
 
-    // HikariCP连接池
+    // HikariCP连接池，配置了只读副本时返回读写分离的数据源
     @Bean(destroyMethod = "close")
     DataSource dataSource(
             @Value("${springlet.datasource.url}") String url,
@@ -24,7 +30,17 @@ public class JdbcConfiguration {
             @Value("${springlet.datasource.driver-class-name}") String driver,
             @Value("${springlet.datasource.maximum-pool-size:20}") int maximumPoolSize,
             @Value("${springlet.datasource.minimum-pool-size:1}") int minimumPoolSize,
-            @Value("${springlet.datasource.connection-timeout:30000}") int connTimeout
+            @Value("${springlet.datasource.connection-timeout:30000}") int connTimeout,
+            // MySQL驱动把批量INSERT合并为多值INSERT，减少往返
+            @Value("${springlet.datasource.rewrite-batched-statements:false}") boolean rewriteBatchedStatements,
+            // 每个连接缓存的PreparedStatement数，0表示不缓存
+            @Value("${springlet.datasource.statement-cache-size:0}") int statementCacheSize,
+            // 只读副本的URL，逗号分隔，用户名密码和主库相同
+            @Value("${springlet.datasource.replica-urls:}") String replicaUrls,
+            // ROUND_ROBIN或LEAST_IN_FLIGHT
+            @Value("${springlet.datasource.load-balance:ROUND_ROBIN}") String loadBalance,
+            // 获取连接失败的副本被摘除的毫秒数
+            @Value("${springlet.datasource.replica-eject-duration:30000}") long ejectDuration
     ) {
         var config = new HikariConfig();
         config.setAutoCommit(false); // 关闭自动事务
@@ -37,15 +53,64 @@ public class JdbcConfiguration {
         config.setMaximumPoolSize(maximumPoolSize);
         config.setMinimumIdle(minimumPoolSize);
         config.setConnectionTimeout(connTimeout);
-        return new HikariDataSource(config);
+        if (rewriteBatchedStatements) {
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls.split(",")) {
+            if (!replicaUrl.isBlank()) {
+                var replicaConfig = new HikariConfig();
+                config.copyStateTo(replicaConfig);
+                replicaConfig.setJdbcUrl(replicaUrl.strip());
+                replicaConfig.setPoolName("replica-" + replicas.size());
+                replicas.add(createDataSource(replicaConfig, statementCacheSize));
+            }
+        }
+        DataSource primary = createDataSource(config, statementCacheSize);
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas,
+                ReadWriteRoutingDataSource.LoadBalance.valueOf(loadBalance.toUpperCase()), Duration.ofMillis(ejectDuration));
+    }
+
+    DataSource createDataSource(HikariConfig config, int statementCacheSize) {
+        HikariDataSource dataSource = new HikariDataSource(config);
+        if (statementCacheSize > 0) {
+            StatementCachingDataSource cachingDataSource = new StatementCachingDataSource(dataSource, statementCacheSize);
+            cachingDataSource.registerMBean(config.getPoolName());
+            return cachingDataSource;
+        }
+        return dataSource;
     }
 
     /**
      * 实现基本SQL操作
      */
     @Bean
-    JdbcTemplate jdbcTemplate(@Autowired DataSource dataSource) {
-        return new JdbcTemplate(dataSource);
+    JdbcTemplate jdbcTemplate(
+            @Autowired DataSource dataSource,
+            // METHOD_HANDLE或GENERATED
+            @Value("${springlet.jdbc.row-mapper:METHOD_HANDLE}") String rowMapper,
+            @Value("${springlet.jdbc.batch-size:1000}") int batchSize,
+            @Value("${springlet.jdbc.fetch-size:1000}") int fetchSize,
+            // 连接池关闭了自动提交，事务外的调用默认在隐式事务中执行，避免每次切换autoCommit
+            @Value("${springlet.jdbc.non-transactional-mode:IMPLICIT_TRANSACTION}") String nonTransactionalMode
+    ) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setRowMapperStrategy(RowMapperStrategy.valueOf(rowMapper.toUpperCase()));
+        jdbcTemplate.setBatchSize(batchSize);
+        jdbcTemplate.setFetchSize(fetchSize);
+        jdbcTemplate.setNonTransactionalMode(NonTransactionalMode.valueOf(nonTransactionalMode.toUpperCase()));
+        return jdbcTemplate;
+    }
+
+    /**
+     * 使用:name命名参数，委托给JdbcTemplate执行
+     */
+    @Bean
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate(@Autowired JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     /**
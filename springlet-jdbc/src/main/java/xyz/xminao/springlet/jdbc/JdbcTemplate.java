@@ -2,12 +2,15 @@ package xyz.xminao.springlet.jdbc;
 
 
 import xyz.xminao.springlet.exception.DataAccessException;
+import xyz.xminao.springlet.jdbc.datasource.RoutingContext;
 import xyz.xminao.springlet.jdbc.tx.TransactionalUtils;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 基于Template模式，以回调作为参数定义模板方法
@@ -17,21 +20,57 @@ public class JdbcTemplate {
 
     // 注入数据源
     final DataSource dataSource;
+    // 按Class查询时使用的RowMapper
+    RowMapperStrategy rowMapperStrategy = RowMapperStrategy.METHOD_HANDLE;
+    // batchUpdate()每次executeBatch()发送的行数
+    int batchSize = 1000;
+    // queryForStream()和query(RowCallbackHandler)每次从数据库读取的行数
+    int fetchSize = 1000;
+    // 事务外执行时如何处理关闭了自动提交的连接，和JdbcConfiguration的默认值一致
+    NonTransactionalMode nonTransactionalMode = NonTransactionalMode.IMPLICIT_TRANSACTION;
 
     public JdbcTemplate(DataSource dataSource) {
         this.dataSource = dataSource;
     }
 
+    public void setRowMapperStrategy(RowMapperStrategy rowMapperStrategy) {
+        this.rowMapperStrategy = rowMapperStrategy;
+    }
+
+    public void setNonTransactionalMode(NonTransactionalMode nonTransactionalMode) {
+        this.nonTransactionalMode = nonTransactionalMode;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
     public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+        return execute(psc, action, false);
+    }
+
+    /**
+     * readOnly为true时，不在事务中的连接可以由ReadWriteRoutingDataSource路由到只读副本
+     */
+    <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean readOnly) {
         return execute(new ConnectionCallback<T>() {
             @Override
             public T doInConnection(Connection conn) throws SQLException {
                 // 从psc获取对象，psc通过conn获取对象
                 try (PreparedStatement ps = psc.createPreparedStatement(conn)) {
+                    // 事务设置了超时时以剩余时间作为查询超时
+                    TransactionalUtils.applyTimeout(ps);
                     return action.doInPreparedStatement(ps);
                 }
             }
-        });
+        }, readOnly);
     }
 
     private PreparedStatementCreator preparedStatementCreator(String sql, Object... args) {
@@ -57,7 +96,7 @@ public class JdbcTemplate {
         if (Number.class.isAssignableFrom(clazz) || clazz.isPrimitive()) {
             return (T) queryForObject(sql, NumberRowMapper.instance, args);
         }
-        return queryForObject(sql, new BeanRowMapper<>(clazz), args);
+        return queryForObject(sql, this.rowMapperStrategy.getRowMapper(clazz), args);
     }
 
     public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
@@ -66,9 +105,10 @@ public class JdbcTemplate {
                 (PreparedStatement ps) -> {
                     T t = null;
                     try (ResultSet rs = ps.executeQuery()) {
+                        RowMapper<T> mapper = rowMapper.prepare(rs);
                         while (rs.next()) {
                             if (t == null) {
-                                t = rowMapper.mapRow(rs, rs.getRow());
+                                t = mapper.mapRow(rs, rs.getRow());
                             } else {
                                 throw new DataAccessException("Multiple rows found.");
                             }
@@ -78,11 +118,11 @@ public class JdbcTemplate {
                         throw new DataAccessException("Empty result set.");
                     }
                     return t;
-                });
+                }, true);
     }
 
     public <T> List<T> queryForList(String sql, Class<T> clazz, Object... args) throws DataAccessException {
-        return queryForList(sql, new BeanRowMapper<>(clazz), args);
+        return queryForList(sql, this.rowMapperStrategy.getRowMapper(clazz), args);
     }
 
     public <T> List<T> queryForList(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
@@ -91,12 +131,94 @@ public class JdbcTemplate {
                 (PreparedStatement ps) -> {
                     List<T> list = new ArrayList<>();
                     try (ResultSet rs = ps.executeQuery()) {
+                        // 每个ResultSet只计算一次列映射
+                        RowMapper<T> mapper = rowMapper.prepare(rs);
                         while (rs.next()) {
-                            list.add(rowMapper.mapRow(rs, rs.getRow()));
+                            list.add(mapper.mapRow(rs, rs.getRow()));
                         }
                     }
                     return list;
-                });
+                }, true);
+    }
+
+    /**
+     * 逐行处理查询结果，内存占用只和fetchSize有关，和结果行数无关
+     */
+    public void query(String sql, RowCallbackHandler rch, Object... args) throws DataAccessException {
+        execute((Connection conn) -> {
+            try (PreparedStatement ps = streamingStatement(conn, sql, args); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rch.processRow(rs);
+                }
+            }
+            return null;
+        }, true);
+    }
+
+    /**
+     * 返回延迟映射每一行的Stream，内存占用只和fetchSize有关，和结果行数无关
+     * Stream持有ResultSet和连接（不在事务中时），必须在try-with-resources中使用，关闭Stream时释放；
+     * 在事务中时使用事务连接，连接在事务结束时释放。
+     */
+    public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
+        Connection current = TransactionalUtils.getCurrentConnection();
+        Connection conn = current;
+        boolean autoCommit = true;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            if (conn == null) {
+                conn = getConnection(true);
+                autoCommit = conn.getAutoCommit();
+                this.nonTransactionalMode.begin(conn, autoCommit);
+            }
+            ps = streamingStatement(conn, sql, args);
+            rs = ps.executeQuery();
+            ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(rs, ps, current == null ? conn : null,
+                    autoCommit, this.nonTransactionalMode, rowMapper.prepare(rs));
+            return StreamSupport.stream(spliterator, false).onClose(spliterator);
+        } catch (SQLException e) {
+            DataAccessException error = new DataAccessException(e);
+            closeOnFailure(rs, ps, current == null ? conn : null, autoCommit, error);
+            throw error;
+        } catch (RuntimeException | Error e) {
+            // 准备映射或绑定参数失败时同样释放已经获取的资源
+            closeOnFailure(rs, ps, current == null ? conn : null, autoCommit, e);
+            throw e;
+        }
+    }
+
+    /**
+     * queryForStream()创建Stream失败时关闭已经打开的资源，隐式事务回滚
+     */
+    void closeOnFailure(ResultSet rs, PreparedStatement ps, Connection conn, boolean autoCommit, Throwable error) {
+        ResultSetSpliterator<?> spliterator = new ResultSetSpliterator<>(rs, ps, conn, autoCommit, this.nonTransactionalMode, null);
+        spliterator.success = false;
+        try {
+            spliterator.run();
+        } catch (DataAccessException closeError) {
+            error.addSuppressed(closeError);
+        }
+    }
+
+    /**
+     * 创建只向前读取的PreparedStatement并设置fetchSize
+     * MySQL驱动只有fetchSize为Integer.MIN_VALUE时才逐行读取，否则会把整个结果读入内存
+     */
+    PreparedStatement streamingStatement(Connection conn, String sql, Object... args) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            TransactionalUtils.applyTimeout(ps);
+            if (this.fetchSize > 0) {
+                boolean mysql = "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+                ps.setFetchSize(mysql ? Integer.MIN_VALUE : this.fetchSize);
+            }
+            bindArgs(ps, args);
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+        return ps;
     }
 
     public Number updateAndReturnGeneratedKey(String sql, Object... args) throws DataAccessException {
@@ -132,18 +254,80 @@ public class JdbcTemplate {
                 });
     }
 
+    /**
+     * 批量执行同一条SQL，每个元素是一行的参数，返回每一行影响的行数
+     */
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        return batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bindArgs(ps, batchArgs.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchArgs.size();
+            }
+        });
+    }
+
+    /**
+     * 批量执行同一条SQL，复用一个PreparedStatement，每batchSize行调用一次executeBatch()
+     * 返回每一行影响的行数，驱动合并语句（如MySQL的rewriteBatchedStatements）时可能是Statement.SUCCESS_NO_INFO
+     */
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+        int size = pss.getBatchSize();
+        if (size == 0) {
+            return new int[0];
+        }
+        return execute(preparedStatementCreator(sql),
+                (PreparedStatement ps) -> {
+                    int[] counts = new int[size];
+                    int chunkStart = 0;
+                    for (int i = 0; i < size; i++) {
+                        pss.setValues(ps, i);
+                        ps.addBatch();
+                        if (i + 1 - chunkStart == this.batchSize || i + 1 == size) {
+                            int[] chunk = ps.executeBatch();
+                            System.arraycopy(chunk, 0, counts, chunkStart, Math.min(chunk.length, i + 1 - chunkStart));
+                            chunkStart = i + 1;
+                        }
+                    }
+                    return counts;
+                });
+    }
+
     private void bindArgs(PreparedStatement ps, Object... args) throws SQLException {
         for (int i = 0; i < args.length; i += 1) {
             ps.setObject(i + 1, args[i]);
         }
     }
 
+    /**
+     * 从数据源获取不在事务中的连接，只读操作设置RoutingContext，由路由数据源选择只读副本
+     */
+    Connection getConnection(boolean readOnly) throws SQLException {
+        if (!readOnly) {
+            return this.dataSource.getConnection();
+        }
+        boolean previous = RoutingContext.setReadOnly(true);
+        try {
+            return this.dataSource.getConnection();
+        } finally {
+            RoutingContext.setReadOnly(previous);
+        }
+    }
+
     /**
      * 模板方法，用于数据库连接中执行指定操作
      * 以回调为参数
      */
     public <T> T execute(ConnectionCallback<T> action) {
-        // 尝试获取当前事务连接，有就使用，实现REQUIRE事务传播模式
+        return execute(action, false);
+    }
+
+    <T> T execute(ConnectionCallback<T> action, boolean readOnly) {
+        // 尝试获取当前事务连接，有就使用，传播行为由DataSourceTransactionManager处理
         Connection current = TransactionalUtils.getCurrentConnection();
         if (current != null) {
             try {
@@ -155,16 +339,22 @@ public class JdbcTemplate {
         // 没有事务，从连接池获取新连接
         // 也就是JdbcTemplate处理获取连接，释放连接，捕获异常，上层代码使用Connection
         // 获取数据库连接对象
-        try (Connection newConn = dataSource.getConnection()) {
+        try (Connection newConn = getConnection(readOnly)) {
             final boolean autoCommit = newConn.getAutoCommit();
-            if (!autoCommit) {
-                newConn.setAutoCommit(true);
-            }
+            this.nonTransactionalMode.begin(newConn, autoCommit);
             // 调用回调函数完成SQL语句执行
-            T result = action.doInConnection(newConn);
-            if (!autoCommit) {
-                newConn.setAutoCommit(false);
+            T result;
+            try {
+                result = action.doInConnection(newConn);
+            } catch (SQLException | RuntimeException | Error e) {
+                try {
+                    this.nonTransactionalMode.end(newConn, autoCommit, false);
+                } catch (SQLException endError) {
+                    e.addSuppressed(endError);
+                }
+                throw e;
             }
+            this.nonTransactionalMode.end(newConn, autoCommit, true);
             return result;
         } catch (SQLException e) {
             throw new DataAccessException(e);
@@ -0,0 +1,61 @@
+package xyz.xminao.springlet.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * JdbcTemplate在事务外执行时如何处理关闭了自动提交的连接（如autoCommit=false的连接池）
+ * 连接本身是自动提交时两种方式都不做任何操作
+ */
+public enum NonTransactionalMode {
+
+    /**
+     * 执行前打开自动提交，执行后关闭，每次调用两次往返（MySQL的SET autocommit）
+     */
+    AUTO_COMMIT {
+        @Override
+        void begin(Connection conn, boolean autoCommit) throws SQLException {
+            if (!autoCommit) {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        @Override
+        void end(Connection conn, boolean autoCommit, boolean success) throws SQLException {
+            if (!autoCommit) {
+                conn.setAutoCommit(false);
+            }
+        }
+    },
+
+    /**
+     * 不修改自动提交，在隐式事务中执行，成功后提交、失败时回滚，每次调用一次往返
+     * 连接池归还连接时不会再回滚；同一个ConnectionCallback中的多条语句一起提交
+     */
+    IMPLICIT_TRANSACTION {
+        @Override
+        void begin(Connection conn, boolean autoCommit) {
+        }
+
+        @Override
+        void end(Connection conn, boolean autoCommit, boolean success) throws SQLException {
+            if (!autoCommit) {
+                if (success) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+            }
+        }
+    };
+
+    /**
+     * 从连接池获取连接后、执行前调用，autoCommit是连接当前的状态
+     */
+    abstract void begin(Connection conn, boolean autoCommit) throws SQLException;
+
+    /**
+     * 执行结束、归还连接前调用
+     */
+    abstract void end(Connection conn, boolean autoCommit, boolean success) throws SQLException;
+}
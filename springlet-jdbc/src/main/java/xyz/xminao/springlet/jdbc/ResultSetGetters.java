@@ -0,0 +1,49 @@
+package xyz.xminao.springlet.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 按列序号读取包装类型的值，列为NULL时返回null而不是0
+ * 由ColumnWriter和生成的RowMapper类调用，所以是public的
+ */
+public final class ResultSetGetters {
+
+    private ResultSetGetters() {
+    }
+
+    public static Integer getInteger(ResultSet rs, int index) throws SQLException {
+        int v = rs.getInt(index);
+        return rs.wasNull() ? null : v;
+    }
+
+    public static Long getLong(ResultSet rs, int index) throws SQLException {
+        long v = rs.getLong(index);
+        return rs.wasNull() ? null : v;
+    }
+
+    public static Double getDouble(ResultSet rs, int index) throws SQLException {
+        double v = rs.getDouble(index);
+        return rs.wasNull() ? null : v;
+    }
+
+    public static Float getFloat(ResultSet rs, int index) throws SQLException {
+        float v = rs.getFloat(index);
+        return rs.wasNull() ? null : v;
+    }
+
+    public static Short getShort(ResultSet rs, int index) throws SQLException {
+        short v = rs.getShort(index);
+        return rs.wasNull() ? null : v;
+    }
+
+    public static Byte getByte(ResultSet rs, int index) throws SQLException {
+        byte v = rs.getByte(index);
+        return rs.wasNull() ? null : v;
+    }
+
+    public static Boolean getBoolean(ResultSet rs, int index) throws SQLException {
+        boolean v = rs.getBoolean(index);
+        return rs.wasNull() ? null : v;
+    }
+}
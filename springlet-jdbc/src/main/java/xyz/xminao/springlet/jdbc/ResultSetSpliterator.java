@@ -0,0 +1,106 @@
+package xyz.xminao.springlet.jdbc;
+
+import xyz.xminao.springlet.exception.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * queryForStream()返回的Stream的数据源，每次tryAdvance()读取并映射一行
+ * 关闭Stream时依次关闭ResultSet、PreparedStatement，不在事务中时结束隐式事务或恢复自动提交后归还连接
+ */
+class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements Runnable {
+
+    final ResultSet rs;
+    final PreparedStatement ps;
+    // 不在事务中时由Stream持有的连接，在事务中时为null
+    final Connection connection;
+    final boolean autoCommit;
+    final NonTransactionalMode mode;
+    final RowMapper<T> rowMapper;
+    int rowNum;
+    boolean closed;
+    // 读取失败时隐式事务回滚而不是提交
+    boolean success = true;
+
+    ResultSetSpliterator(ResultSet rs, PreparedStatement ps, Connection connection, boolean autoCommit,
+                         NonTransactionalMode mode, RowMapper<T> rowMapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.rs = rs;
+        this.ps = ps;
+        this.connection = connection;
+        this.autoCommit = autoCommit;
+        this.mode = mode;
+        this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (this.closed) {
+            return false;
+        }
+        try {
+            if (!this.rs.next()) {
+                return false;
+            }
+            action.accept(this.rowMapper.mapRow(this.rs, ++this.rowNum));
+            return true;
+        } catch (SQLException e) {
+            this.success = false;
+            throw new DataAccessException(e);
+        } catch (RuntimeException | Error e) {
+            // 映射失败同样回滚隐式事务
+            this.success = false;
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭所有资源，任何一步失败都继续关闭后面的资源
+     */
+    @Override
+    public void run() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        DataAccessException error = null;
+        error = close(this.rs, error);
+        error = close(this.ps, error);
+        if (this.connection != null) {
+            try {
+                this.mode.end(this.connection, this.autoCommit, this.success);
+            } catch (SQLException e) {
+                error = addError(error, e);
+            }
+            error = close(this.connection, error);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    static DataAccessException close(AutoCloseable resource, DataAccessException error) {
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                return addError(error, e);
+            }
+        }
+        return error;
+    }
+
+    static DataAccessException addError(DataAccessException error, Exception e) {
+        if (error == null) {
+            return new DataAccessException(e);
+        }
+        error.addSuppressed(e);
+        return error;
+    }
+}
@@ -0,0 +1,12 @@
+package xyz.xminao.springlet.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 逐行处理查询结果，不保存已处理的行
+ */
+@FunctionalInterface
+public interface RowCallbackHandler {
+    void processRow(ResultSet rs) throws SQLException;
+}
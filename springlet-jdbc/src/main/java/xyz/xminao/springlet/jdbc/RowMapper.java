@@ -13,4 +13,12 @@ import java.sql.SQLException;
 public interface RowMapper<T> {
     @Nullable
     T mapRow(ResultSet rs, int rowNum) throws SQLException;
+
+    /**
+     * 读取ResultSet的第一行之前调用一次，返回映射该ResultSet所有行的RowMapper
+     * 可以根据ResultSetMetaData预先计算列和属性的对应关系，映射每一行时不再查询元数据
+     */
+    default RowMapper<T> prepare(ResultSet rs) throws SQLException {
+        return this;
+    }
 }
@@ -0,0 +1,29 @@
+package xyz.xminao.springlet.jdbc;
+
+/**
+ * JdbcTemplate按Class查询时把行映射为对象的方式
+ */
+public enum RowMapperStrategy {
+
+    /**
+     * BeanRowMapper，通过MethodHandle写入属性
+     */
+    METHOD_HANDLE {
+        @Override
+        public <T> RowMapper<T> getRowMapper(Class<T> clazz) {
+            return BeanRowMapper.of(clazz);
+        }
+    },
+
+    /**
+     * GeneratedRowMapper，为每种列结构生成字节码，首次映射较慢，适合映射大量行
+     */
+    GENERATED {
+        @Override
+        public <T> RowMapper<T> getRowMapper(Class<T> clazz) {
+            return GeneratedRowMapper.of(clazz);
+        }
+    };
+
+    public abstract <T> RowMapper<T> getRowMapper(Class<T> clazz);
+}
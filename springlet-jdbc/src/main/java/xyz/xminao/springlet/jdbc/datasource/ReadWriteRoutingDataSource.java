@@ -0,0 +1,220 @@
+package xyz.xminao.springlet.jdbc.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离的数据源：写操作和读写事务使用主库，RoutingContext标记为只读时使用只读副本
+ * 副本按轮询或最少在用连接数选择；从副本获取连接失败时把它摘除ejectDuration，改用下一个副本，
+ * 摘除时间过后再次尝试，成功即恢复。没有可用副本时读主库。
+ * 副本的复制延迟由业务自行处理，需要读到刚写入数据的查询应放在事务中执行。
+ */
+public class ReadWriteRoutingDataSource implements DataSource, AutoCloseable {
+
+    public enum LoadBalance {
+        ROUND_ROBIN, LEAST_IN_FLIGHT
+    }
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final DataSource primary;
+    final Replica[] replicas;
+    final LoadBalance loadBalance;
+    final long ejectNanos;
+    final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, LoadBalance loadBalance, Duration ejectDuration) {
+        this.primary = primary;
+        this.replicas = new Replica[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++) {
+            this.replicas[i] = new Replica(i, replicas.get(i));
+        }
+        this.loadBalance = loadBalance;
+        this.ejectNanos = ejectDuration.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (this.replicas.length == 0 || !RoutingContext.isReadOnly()) {
+            return this.primary.getConnection();
+        }
+        long now = System.nanoTime();
+        int n = this.replicas.length;
+        int start = Math.floorMod(this.next.getAndIncrement(), n);
+        if (this.loadBalance == LoadBalance.LEAST_IN_FLIGHT) {
+            start = leastInFlight(start, now);
+        }
+        for (int i = 0; i < n; i++) {
+            Replica replica = this.replicas[(start + i) % n];
+            if (!replica.isAvailable(now)) {
+                continue;
+            }
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                replica.ejectedUntil = now + this.ejectNanos;
+                logger.warn("replica {} ejected for {} ms: {}", replica.index, this.ejectNanos / 1_000_000, e.toString());
+            }
+        }
+        logger.atDebug().log("no replica available, read from primary");
+        return this.primary.getConnection();
+    }
+
+    /**
+     * 从start开始找在用连接最少的可用副本，相同时靠前的优先，使空闲副本之间仍然轮流分配
+     */
+    int leastInFlight(int start, long now) {
+        int n = this.replicas.length;
+        int best = start;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            int index = (start + i) % n;
+            Replica replica = this.replicas[index];
+            if (replica.isAvailable(now) && replica.inFlight.get() < min) {
+                min = replica.inFlight.get();
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 可用的副本数
+     */
+    public int getAvailableReplicaCount() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Replica replica : this.replicas) {
+            if (replica.isAvailable(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.primary.getConnection(username, password);
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception error = null;
+        for (Replica replica : this.replicas) {
+            error = closeQuietly(replica.dataSource, error);
+        }
+        error = closeQuietly(this.primary, error);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    static Exception closeQuietly(DataSource dataSource, Exception error) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                if (error == null) {
+                    return e;
+                }
+                error.addSuppressed(e);
+            }
+        }
+        return error;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return this.primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return this.primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return this.primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : this.primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || this.primary.isWrapperFor(iface);
+    }
+
+    final class Replica {
+
+        final int index;
+        final DataSource dataSource;
+        // 借出未关闭的连接数
+        final AtomicInteger inFlight = new AtomicInteger();
+        // 摘除到期的System.nanoTime()，0表示正常
+        volatile long ejectedUntil;
+
+        Replica(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+
+        boolean isAvailable(long now) {
+            long until = this.ejectedUntil;
+            return until == 0 || now - until >= 0;
+        }
+
+        Connection getConnection() throws SQLException {
+            Connection conn = this.dataSource.getConnection();
+            if (this.ejectedUntil != 0) {
+                this.ejectedUntil = 0;
+                logger.info("replica {} recovered", this.index);
+            }
+            if (loadBalance != LoadBalance.LEAST_IN_FLIGHT) {
+                return conn;
+            }
+            this.inFlight.incrementAndGet();
+            // 关闭连接时减少在用连接数
+            boolean[] closed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(ReadWriteRoutingDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    this.inFlight.decrementAndGet();
+                                }
+                                break;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                        }
+                        return StatementCachingDataSource.invoke(conn, method, args);
+                    });
+        }
+    }
+}
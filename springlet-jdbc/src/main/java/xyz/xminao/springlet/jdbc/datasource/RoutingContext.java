@@ -0,0 +1,30 @@
+package xyz.xminao.springlet.jdbc.datasource;
+
+/**
+ * 当前线程获取连接时的路由提示
+ * JdbcTemplate在事务外执行查询时设置只读，ReadWriteRoutingDataSource据此把连接路由到只读副本
+ */
+public final class RoutingContext {
+
+    static final ThreadLocal<Boolean> readOnly = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static boolean isReadOnly() {
+        return readOnly.get() == Boolean.TRUE;
+    }
+
+    /**
+     * 设置只读提示，返回之前的值，调用方在finally中恢复
+     */
+    public static boolean setReadOnly(boolean value) {
+        boolean previous = isReadOnly();
+        if (value) {
+            readOnly.set(Boolean.TRUE);
+        } else {
+            readOnly.remove();
+        }
+        return previous;
+    }
+}
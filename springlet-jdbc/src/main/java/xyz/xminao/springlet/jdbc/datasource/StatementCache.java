@@ -0,0 +1,59 @@
+package xyz.xminao.springlet.jdbc.datasource;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个物理连接上空闲的PreparedStatement，按SQL保存，超过容量时关闭最久没有使用的语句
+ * 取出的语句不在缓存中，同一SQL被同时使用（如遍历结果时嵌套查询）时另外创建，归还时已有同SQL的空闲语句则直接关闭
+ */
+class StatementCache {
+
+    final StatementCachingDataSource owner;
+    final LinkedHashMap<String, PreparedStatement> idle;
+
+    StatementCache(StatementCachingDataSource owner) {
+        this.owner = owner;
+        // 按访问顺序排列，最久没有使用的在最前面
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 取出sql的空闲语句，没有或已经被关闭（如连接池关闭了物理连接）时返回null
+     */
+    synchronized PreparedStatement take(String sql) throws SQLException {
+        PreparedStatement ps = this.idle.remove(sql);
+        if (ps != null && !ps.isClosed()) {
+            this.owner.hits.increment();
+            return ps;
+        }
+        this.owner.misses.increment();
+        return null;
+    }
+
+    /**
+     * 归还语句，清除参数后放回缓存
+     */
+    synchronized void release(String sql, PreparedStatement ps) throws SQLException {
+        if (ps.isClosed()) {
+            return;
+        }
+        if (this.idle.containsKey(sql)) {
+            ps.close();
+            return;
+        }
+        ps.clearParameters();
+        ps.clearBatch();
+        this.idle.put(sql, ps);
+        if (this.idle.size() > this.owner.cacheSize) {
+            Iterator<Map.Entry<String, PreparedStatement>> it = this.idle.entrySet().iterator();
+            PreparedStatement eldest = it.next().getValue();
+            it.remove();
+            this.owner.evictions.increment();
+            eldest.close();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package xyz.xminao.springlet.jdbc.datasource;
+
+/**
+ * 通过JMX暴露的PreparedStatement缓存统计
+ * ObjectName: xyz.xminao.springlet:type=StatementCache,name=数据源名
+ */
+public interface StatementCacheMXBean {
+
+    /**
+     * 每个连接最多缓存的语句数
+     */
+    int getCacheSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    double getHitRate();
+}
@@ -0,0 +1,294 @@
+package xyz.xminao.springlet.jdbc.datasource;
+
+import xyz.xminao.springlet.aop.metrics.JmxUtils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 为每个物理连接缓存PreparedStatement的数据源，用于没有自己语句缓存的驱动（如SQLite，未开启cachePrepStmts的MySQL）
+ * 通过连接执行prepareStatement(sql)时优先使用该物理连接上的空闲语句，关闭语句时放回缓存而不是真正关闭，
+ * 连接归还连接池后缓存仍然有效，下次借出同一个物理连接时继续使用。其他prepareStatement()重载不缓存。
+ * 缓存的语句在物理连接上创建，不受连接池的语句跟踪管理，物理连接被连接池关闭时随之关闭；
+ * 连接池也看不到这些语句的执行，关闭了自动提交的连接在有未提交的修改时由这里回滚后再归还。
+ */
+public class StatementCachingDataSource implements DataSource, AutoCloseable, StatementCacheMXBean {
+
+    final DataSource target;
+    final int cacheSize;
+    // 物理连接 -> 语句缓存，缓存的语句引用着物理连接，不能依靠弱引用回收，出现新的物理连接时清理已关闭的
+    final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    public StatementCachingDataSource(DataSource target, int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Statement cache size must be positive: " + cacheSize);
+        }
+        this.target = target;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * 注册到JMX：xyz.xminao.springlet:type=StatementCache,name=name
+     */
+    public void registerMBean(String name) {
+        JmxUtils.registerMBean(this, "StatementCache", name);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(this.target.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(this.target.getConnection(username, password));
+    }
+
+    Connection wrap(Connection conn) throws SQLException {
+        // 连接池返回的是代理连接，每次借出都不同，缓存按物理连接保存
+        Connection physical = conn.isWrapperFor(Connection.class) ? conn.unwrap(Connection.class) : conn;
+        StatementCache cache;
+        synchronized (this.caches) {
+            cache = this.caches.get(physical);
+            if (cache == null) {
+                removeClosed();
+                cache = new StatementCache(this);
+                this.caches.put(physical, cache);
+            }
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(conn, physical, cache));
+    }
+
+    void removeClosed() {
+        this.caches.keySet().removeIf(conn -> {
+            try {
+                return conn.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (this.target instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Override
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    @Override
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hit = getHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return this.target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return this.target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return this.target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : this.target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || this.target.isWrapperFor(iface);
+    }
+
+    static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 借出的连接，只拦截prepareStatement(String)
+     * 缓存的语句在物理连接上执行，连接池看不到，由这里记录未提交的修改，关闭时回滚，代替连接池归还时的回滚
+     */
+    static final class ConnectionHandler implements InvocationHandler {
+
+        final Connection conn;
+        final Connection physical;
+        final StatementCache cache;
+        // 缓存的语句执行后还没有提交或回滚
+        boolean dirty;
+
+        ConnectionHandler(Connection conn, Connection physical, StatementCache cache) {
+            this.conn = conn;
+            this.physical = physical;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        String sql = (String) args[0];
+                        PreparedStatement ps = this.cache.take(sql);
+                        if (ps == null) {
+                            ps = this.physical.prepareStatement(sql);
+                        }
+                        return Proxy.newProxyInstance(StatementCachingDataSource.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                                new StatementHandler((Connection) proxy, this, sql, ps, this.cache));
+                    }
+                    break;
+                case "commit":
+                case "rollback":
+                    Object r = StatementCachingDataSource.invoke(this.conn, method, args);
+                    // rollback(Savepoint)之后事务仍未结束
+                    if (args == null) {
+                        this.dirty = false;
+                    }
+                    return r;
+                case "setAutoCommit":
+                    StatementCachingDataSource.invoke(this.conn, method, args);
+                    // 打开自动提交时提交当前事务
+                    if ((Boolean) args[0]) {
+                        this.dirty = false;
+                    }
+                    return null;
+                case "close":
+                    if (this.dirty) {
+                        this.dirty = false;
+                        try {
+                            if (!this.conn.isClosed() && !this.conn.getAutoCommit()) {
+                                this.conn.rollback();
+                            }
+                        } catch (SQLException e) {
+                            // 回滚失败时仍然归还连接，连接池会检查连接是否可用
+                            this.conn.close();
+                            throw e;
+                        }
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StatementCaching[" + this.conn + "]";
+            }
+            return StatementCachingDataSource.invoke(this.conn, method, args);
+        }
+    }
+
+    /**
+     * 缓存的语句，close()时放回缓存
+     */
+    static final class StatementHandler implements InvocationHandler {
+
+        final Connection connection;
+        final ConnectionHandler connectionHandler;
+        final String sql;
+        final PreparedStatement ps;
+        final StatementCache cache;
+        boolean closed;
+        // 设置过查询超时，归还前恢复为不限制
+        boolean timeoutSet;
+
+        StatementHandler(Connection connection, ConnectionHandler connectionHandler, String sql, PreparedStatement ps, StatementCache cache) {
+            this.connection = connection;
+            this.connectionHandler = connectionHandler;
+            this.sql = sql;
+            this.ps = ps;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        if (this.timeoutSet && !this.ps.isClosed()) {
+                            this.ps.setQueryTimeout(0);
+                        }
+                        this.cache.release(this.sql, this.ps);
+                    }
+                    return null;
+                case "setQueryTimeout":
+                    this.timeoutSet = true;
+                    break;
+                case "isClosed":
+                    return this.closed || this.ps.isClosed();
+                case "getConnection":
+                    return this.connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + this.ps + "]";
+            }
+            if (this.closed) {
+                throw new SQLException("Statement is closed.");
+            }
+            if (method.getName().startsWith("execute")) {
+                this.connectionHandler.dirty = true;
+            }
+            return StatementCachingDataSource.invoke(this.ps, method, args);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package xyz.xminao.springlet.jdbc.namedparam;
+
+import xyz.xminao.springlet.exception.DataAccessException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 从对象的getter、record组件或public字段获取参数值，getter优先于同名字段
+ * 每个Class的属性只查找一次，读取属性时调用MethodHandle，不使用反射调用
+ */
+public class BeanPropertySqlParameterSource implements SqlParameterSource {
+
+    static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    // 属性名 -> (Object)Object的getter
+    static final ClassValue<Map<String, MethodHandle>> getters = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return findGetters(type);
+        }
+    };
+
+    final Object bean;
+    final Map<String, MethodHandle> properties;
+
+    public BeanPropertySqlParameterSource(Object bean) {
+        this.bean = bean;
+        this.properties = getters.get(bean.getClass());
+    }
+
+    static Map<String, MethodHandle> findGetters(Class<?> clazz) {
+        Map<String, MethodHandle> getters = new HashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            for (Field f : clazz.getFields()) {
+                if (!Modifier.isStatic(f.getModifiers())) {
+                    getters.put(f.getName(), lookup.unreflectGetter(f).asType(GETTER_TYPE));
+                }
+            }
+            if (clazz.isRecord()) {
+                for (RecordComponent rc : clazz.getRecordComponents()) {
+                    getters.put(rc.getName(), lookup.unreflect(rc.getAccessor()).asType(GETTER_TYPE));
+                }
+            }
+            for (Method m : clazz.getMethods()) {
+                if (m.getParameterCount() != 0 || Modifier.isStatic(m.getModifiers()) || m.getReturnType() == void.class
+                        || m.getDeclaringClass() == Object.class) {
+                    continue;
+                }
+                String name = m.getName();
+                String prop = null;
+                if (name.length() >= 4 && name.startsWith("get")) {
+                    prop = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                } else if (name.length() >= 3 && name.startsWith("is") && m.getReturnType() == boolean.class) {
+                    prop = Character.toLowerCase(name.charAt(2)) + name.substring(3);
+                }
+                if (prop != null) {
+                    getters.put(prop, lookup.unreflect(m).asType(GETTER_TYPE));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new DataAccessException(String.format("Cannot access property of class %s when build parameter source.", clazz.getName()), e);
+        }
+        return getters;
+    }
+
+    @Override
+    public boolean hasValue(String name) {
+        return this.properties.containsKey(name);
+    }
+
+    @Override
+    public Object getValue(String name) {
+        MethodHandle getter = this.properties.get(name);
+        if (getter == null) {
+            throw new DataAccessException(String.format("No property %s found in class %s.", name, this.bean.getClass().getName()));
+        }
+        try {
+            return (Object) getter.invokeExact(this.bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new DataAccessException(String.format("Cannot get property %s of class %s.", name, this.bean.getClass().getName()), e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package xyz.xminao.springlet.jdbc.namedparam;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 从Map获取参数值
+ */
+public class MapSqlParameterSource implements SqlParameterSource {
+
+    final Map<?, ?> values;
+
+    public MapSqlParameterSource() {
+        this.values = new HashMap<String, Object>();
+    }
+
+    public MapSqlParameterSource(Map<?, ?> values) {
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    public MapSqlParameterSource addValue(String name, Object value) {
+        ((Map<String, Object>) this.values).put(name, value);
+        return this;
+    }
+
+    @Override
+    public boolean hasValue(String name) {
+        return this.values.containsKey(name);
+    }
+
+    @Override
+    public Object getValue(String name) {
+        return this.values.get(name);
+    }
+}
@@ -0,0 +1,173 @@
+package xyz.xminao.springlet.jdbc.namedparam;
+
+import xyz.xminao.springlet.aop.cache.TinyLfuCache;
+import xyz.xminao.springlet.exception.DataAccessException;
+import xyz.xminao.springlet.jdbc.BatchPreparedStatementSetter;
+import xyz.xminao.springlet.jdbc.JdbcTemplate;
+import xyz.xminao.springlet.jdbc.RowCallbackHandler;
+import xyz.xminao.springlet.jdbc.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 使用:name命名参数的JdbcTemplate，参数值来自Map或对象属性，Collection和Object[]参数展开为IN列表
+ * 解析后的SQL按SQL字符串缓存，展开后的SQL按IN列表元素个数缓存，重复执行时不再解析和拼接，
+ * 执行时转换为?参数交给JdbcTemplate，事务、连接和结果映射和JdbcTemplate完全相同。
+ */
+public class NamedParameterJdbcTemplate {
+
+    public static final int DEFAULT_CACHE_LIMIT = 256;
+
+    final JdbcTemplate jdbcTemplate;
+    // SQL -> ParsedSql
+    final TinyLfuCache parsedSqlCache;
+
+    public NamedParameterJdbcTemplate(DataSource dataSource) {
+        this(new JdbcTemplate(dataSource));
+    }
+
+    public NamedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, DEFAULT_CACHE_LIMIT);
+    }
+
+    public NamedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, int cacheLimit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.parsedSqlCache = TinyLfuCache.builder("namedParameterSql").maximumSize(cacheLimit).build();
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return this.jdbcTemplate;
+    }
+
+    public Number queryForNumber(String sql, Map<String, ?> params) throws DataAccessException {
+        return queryForNumber(sql, SqlParameterSource.of(params));
+    }
+
+    public Number queryForNumber(String sql, SqlParameterSource params) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.queryForNumber(bound.sql(), bound.args());
+    }
+
+    public <T> T queryForObject(String sql, Map<String, ?> params, Class<T> clazz) throws DataAccessException {
+        return queryForObject(sql, SqlParameterSource.of(params), clazz);
+    }
+
+    public <T> T queryForObject(String sql, SqlParameterSource params, Class<T> clazz) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.queryForObject(bound.sql(), clazz, bound.args());
+    }
+
+    public <T> T queryForObject(String sql, Map<String, ?> params, RowMapper<T> rowMapper) throws DataAccessException {
+        return queryForObject(sql, SqlParameterSource.of(params), rowMapper);
+    }
+
+    public <T> T queryForObject(String sql, SqlParameterSource params, RowMapper<T> rowMapper) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.queryForObject(bound.sql(), rowMapper, bound.args());
+    }
+
+    public <T> List<T> queryForList(String sql, Map<String, ?> params, Class<T> clazz) throws DataAccessException {
+        return queryForList(sql, SqlParameterSource.of(params), clazz);
+    }
+
+    public <T> List<T> queryForList(String sql, SqlParameterSource params, Class<T> clazz) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.queryForList(bound.sql(), clazz, bound.args());
+    }
+
+    public <T> List<T> queryForList(String sql, Map<String, ?> params, RowMapper<T> rowMapper) throws DataAccessException {
+        return queryForList(sql, SqlParameterSource.of(params), rowMapper);
+    }
+
+    public <T> List<T> queryForList(String sql, SqlParameterSource params, RowMapper<T> rowMapper) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.queryForList(bound.sql(), rowMapper, bound.args());
+    }
+
+    public void query(String sql, Map<String, ?> params, RowCallbackHandler rch) throws DataAccessException {
+        query(sql, SqlParameterSource.of(params), rch);
+    }
+
+    public void query(String sql, SqlParameterSource params, RowCallbackHandler rch) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        this.jdbcTemplate.query(bound.sql(), rch, bound.args());
+    }
+
+    public <T> Stream<T> queryForStream(String sql, Map<String, ?> params, RowMapper<T> rowMapper) throws DataAccessException {
+        return queryForStream(sql, SqlParameterSource.of(params), rowMapper);
+    }
+
+    public <T> Stream<T> queryForStream(String sql, SqlParameterSource params, RowMapper<T> rowMapper) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.queryForStream(bound.sql(), rowMapper, bound.args());
+    }
+
+    public int update(String sql, Map<String, ?> params) throws DataAccessException {
+        return update(sql, SqlParameterSource.of(params));
+    }
+
+    public int update(String sql, SqlParameterSource params) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.update(bound.sql(), bound.args());
+    }
+
+    public Number updateAndReturnGeneratedKey(String sql, Map<String, ?> params) throws DataAccessException {
+        return updateAndReturnGeneratedKey(sql, SqlParameterSource.of(params));
+    }
+
+    public Number updateAndReturnGeneratedKey(String sql, SqlParameterSource params) throws DataAccessException {
+        ParsedSql.BoundSql bound = bind(sql, params);
+        return this.jdbcTemplate.updateAndReturnGeneratedKey(bound.sql(), bound.args());
+    }
+
+    /**
+     * 批量执行，每个元素是一行的参数（Map或对象），所有行的IN列表元素个数必须相同
+     */
+    public int[] batchUpdate(String sql, List<?> batchParams) throws DataAccessException {
+        return batchUpdate(sql, batchParams.stream().map(SqlParameterSource::of).toArray(SqlParameterSource[]::new));
+    }
+
+    public int[] batchUpdate(String sql, SqlParameterSource[] batchParams) throws DataAccessException {
+        if (batchParams.length == 0) {
+            return new int[0];
+        }
+        ParsedSql parsed = getParsedSql(sql);
+        String positionalSql = parsed.bind(batchParams[0]).sql();
+        return this.jdbcTemplate.batchUpdate(positionalSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ParsedSql.BoundSql bound = parsed.bind(batchParams[i]);
+                if (!bound.sql().equals(positionalSql)) {
+                    throw new DataAccessException("Collection parameters of batch rows have different sizes: " + sql);
+                }
+                Object[] args = bound.args();
+                for (int n = 0; n < args.length; n++) {
+                    ps.setObject(n + 1, args[n]);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchParams.length;
+            }
+        });
+    }
+
+    ParsedSql.BoundSql bind(String sql, SqlParameterSource params) {
+        return getParsedSql(sql).bind(params);
+    }
+
+    ParsedSql getParsedSql(String sql) {
+        ParsedSql parsed = (ParsedSql) this.parsedSqlCache.getIfPresent(sql);
+        if (parsed == null) {
+            parsed = ParsedSql.parse(sql);
+            this.parsedSqlCache.put(sql, parsed);
+        }
+        return parsed;
+    }
+}
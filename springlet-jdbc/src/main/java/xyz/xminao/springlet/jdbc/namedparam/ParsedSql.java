@@ -0,0 +1,194 @@
+package xyz.xminao.springlet.jdbc.namedparam;
+
+import xyz.xminao.springlet.exception.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 解析后的命名参数SQL
+ * 每个:name替换为?，Collection和Object[]参数按元素个数替换为?, ?, ...，
+ * 元素个数向上取整到2的幂，多出的位置重复最后一个元素，使不同长度的IN列表共用少量SQL；
+ * 展开后的SQL按每个参数的元素个数缓存，最多缓存MAX_EXPANDED种组合，超过后每次拼接。
+ */
+final class ParsedSql {
+
+    static final int MAX_EXPANDED = 64;
+
+    final String sql;
+    // 按出现顺序的参数名，同一参数出现多次时重复
+    final String[] names;
+    // 参数之间的SQL片段，比names多一个
+    final String[] fragments;
+    // 没有展开IN列表时的SQL
+    final String positionalSql;
+    // 每个参数的元素个数 -> 展开后的SQL
+    final Map<Arity, String> expanded = new ConcurrentHashMap<>();
+
+    ParsedSql(String sql, String[] names, String[] fragments) {
+        this.sql = sql;
+        this.names = names;
+        this.fragments = fragments;
+        this.positionalSql = expand(null);
+    }
+
+    /**
+     * 解析:name参数，忽略引号内的内容、注释和PostgreSQL的::类型转换
+     */
+    static ParsedSql parse(String sql) {
+        List<String> names = new ArrayList<>();
+        List<String> fragments = new ArrayList<>();
+        int len = sql.length();
+        int fragmentStart = 0;
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                i = end < 0 ? len : end + 1;
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i + 2);
+                i = end < 0 ? len : end + 1;
+            } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? len : end + 2;
+            } else if (c == ':' && i + 1 < len && sql.charAt(i + 1) == ':') {
+                i += 2;
+            } else if (c == ':' && i + 1 < len && Character.isJavaIdentifierStart(sql.charAt(i + 1))) {
+                int end = i + 2;
+                while (end < len && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                fragments.add(sql.substring(fragmentStart, i));
+                names.add(sql.substring(i + 1, end));
+                fragmentStart = end;
+                i = end;
+            } else if (c == '?') {
+                throw new DataAccessException("Positional parameter '?' is not supported in named parameter SQL: " + sql);
+            } else {
+                i++;
+            }
+        }
+        fragments.add(sql.substring(fragmentStart));
+        return new ParsedSql(sql, names.toArray(String[]::new), fragments.toArray(String[]::new));
+    }
+
+    /**
+     * 从参数源取值，返回展开后的SQL和按位置排列的参数
+     */
+    BoundSql bind(SqlParameterSource source) {
+        int n = this.names.length;
+        Object[] values = new Object[n];
+        int[] sizes = null;
+        int count = n;
+        for (int i = 0; i < n; i++) {
+            String name = this.names[i];
+            if (!source.hasValue(name)) {
+                throw new DataAccessException(String.format("No value supplied for parameter '%s' of SQL: %s", name, this.sql));
+            }
+            Object value = source.getValue(name);
+            int size = sizeOf(value);
+            if (size >= 0) {
+                if (sizes == null) {
+                    sizes = new int[n];
+                    Arrays.fill(sizes, -1);
+                }
+                sizes[i] = paddedSize(size);
+                // 空列表绑定一个null，IN (NULL)不匹配任何行
+                count += Math.max(sizes[i], 1) - 1;
+            }
+            values[i] = value;
+        }
+        if (sizes == null) {
+            return new BoundSql(this.positionalSql, values);
+        }
+        Object[] args = new Object[count];
+        int index = 0;
+        for (int i = 0; i < n; i++) {
+            Object value = values[i];
+            if (sizes[i] < 0) {
+                args[index++] = value;
+            } else if (sizes[i] == 0) {
+                args[index++] = null;
+            } else {
+                int start = index;
+                if (value instanceof Object[] array) {
+                    System.arraycopy(array, 0, args, index, array.length);
+                    index += array.length;
+                } else {
+                    for (Object element : (Collection<?>) value) {
+                        args[index++] = element;
+                    }
+                }
+                // 补齐到取整后的个数
+                Object last = args[index - 1];
+                while (index - start < sizes[i]) {
+                    args[index++] = last;
+                }
+            }
+        }
+        Arity arity = new Arity(sizes);
+        String sql = this.expanded.get(arity);
+        if (sql == null) {
+            sql = expand(sizes);
+            if (this.expanded.size() < MAX_EXPANDED) {
+                this.expanded.putIfAbsent(arity, sql);
+            }
+        }
+        return new BoundSql(sql, args);
+    }
+
+    /**
+     * 展开为IN列表的参数返回元素个数，否则返回-1
+     */
+    static int sizeOf(Object value) {
+        if (value instanceof Collection<?> c) {
+            return c.size();
+        }
+        if (value instanceof Object[] array) {
+            return array.length;
+        }
+        return -1;
+    }
+
+    /**
+     * 元素个数向上取整到2的幂
+     */
+    static int paddedSize(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    String expand(int[] sizes) {
+        StringBuilder sb = new StringBuilder(this.sql.length() + 16);
+        for (int i = 0; i < this.names.length; i++) {
+            sb.append(this.fragments[i]);
+            int size = sizes == null ? -1 : sizes[i];
+            sb.append('?');
+            for (int j = 1; j < size; j++) {
+                sb.append(", ?");
+            }
+        }
+        sb.append(this.fragments[this.names.length]);
+        return sb.toString();
+    }
+
+    record BoundSql(String sql, Object[] args) {
+    }
+
+    record Arity(int[] sizes) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Arity a && Arrays.equals(this.sizes, a.sizes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.sizes);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package xyz.xminao.springlet.jdbc.namedparam;
+
+import java.util.Map;
+
+/**
+ * NamedParameterJdbcTemplate的参数来源，按参数名提供值
+ */
+public interface SqlParameterSource {
+
+    boolean hasValue(String name);
+
+    /**
+     * 获取参数值，Collection和Object[]展开为IN列表
+     */
+    Object getValue(String name);
+
+    static SqlParameterSource of(Map<String, ?> values) {
+        return new MapSqlParameterSource(values);
+    }
+
+    static SqlParameterSource of(Object bean) {
+        return bean instanceof Map<?, ?> map ? new MapSqlParameterSource(map) : new BeanPropertySqlParameterSource(bean);
+    }
+}
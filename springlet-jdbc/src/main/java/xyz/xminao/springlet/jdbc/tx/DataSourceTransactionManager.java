@@ -1,65 +1,272 @@
 package xyz.xminao.springlet.jdbc.tx;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.xminao.springlet.aop.MethodInterceptor;
+import xyz.xminao.springlet.aop.MethodInvocation;
+import xyz.xminao.springlet.aop.async.AsyncSupport;
 import xyz.xminao.springlet.exception.TransactionException;
+import xyz.xminao.springlet.jdbc.datasource.RoutingContext;
 
 import javax.sql.DataSource;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 具体执行开启、提交、回滚事务的实现类
+ * 作为MethodInterceptor拦截@Transactional Bean的方法，通过MethodInvocation直接调用原始Bean，不使用反射
+ * 事务属性（传播行为、隔离级别、只读、超时）按方法解析一次并缓存，拦截时不查找注解
+ * 返回CompletionStage的方法在异步结果完成时才提交或回滚，异步任务通过ContextPropagation包装的Executor使用同一个事务连接
  */
-public class DataSourceTransactionManager implements PlatformTransactionManager, InvocationHandler {
+public class DataSourceTransactionManager implements PlatformTransactionManager, MethodInterceptor {
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
 
     static final ThreadLocal<TransactionStatus> transactionStatus = new ThreadLocal<>();
     final DataSource dataSource; //拦截器对连接池进行代理
+    // 目标类 -> (方法 -> 事务属性)，同一个继承的方法在不同子类上可以有不同的类级别属性
+    final ClassValue<Map<Method, TransactionAttribute>> attributes = new ClassValue<>() {
+        @Override
+        protected Map<Method, TransactionAttribute> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     public DataSourceTransactionManager(DataSource dataSource) {
         this.dataSource = dataSource;
     }
 
     @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        TransactionStatus ts = transactionStatus.get();
-        if (ts == null) {
-            // 当前无事务，开启新事务
-            try (Connection connection = dataSource.getConnection()) {
-                final boolean autoCommit = connection.getAutoCommit();
-                if (autoCommit) {
-                    connection.setAutoCommit(false); // 关闭自动提交
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        TransactionAttribute attr = getAttribute(invocation.getMethod(), invocation.getThis().getClass());
+        TransactionStatus current = transactionStatus.get();
+        return switch (attr.propagation()) {
+            // 如果已经有事务，加入当前事务执行
+            case REQUIRED -> current != null ? invocation.proceed() : invokeInNewTransaction(invocation, attr, null);
+            case SUPPORTS -> invocation.proceed();
+            case REQUIRES_NEW -> invokeInNewTransaction(invocation, attr, current);
+            case NOT_SUPPORTED -> current != null ? invokeSuspended(invocation, current) : invocation.proceed();
+            case NESTED -> current != null ? invokeNested(invocation, current) : invokeInNewTransaction(invocation, attr, null);
+        };
+    }
+
+    TransactionAttribute getAttribute(Method method, Class<?> targetClass) {
+        Map<Method, TransactionAttribute> classAttributes = this.attributes.get(targetClass);
+        TransactionAttribute attr = classAttributes.get(method);
+        if (attr == null) {
+            attr = classAttributes.computeIfAbsent(method, m -> TransactionAttribute.resolve(m, targetClass));
+        }
+        return attr;
+    }
+
+    /**
+     * 开启新事务执行，suspended是被挂起的外层事务，方法返回后恢复
+     */
+    Object invokeInNewTransaction(MethodInvocation invocation, TransactionAttribute attr, TransactionStatus suspended) throws Throwable {
+        TransactionStatus ts = begin(attr);
+        Object r;
+        try {
+            // 设置threadlocal状态
+            transactionStatus.set(ts);
+            // 调用业务方法
+            r = invocation.proceed();
+        } catch (Throwable e) {
+            throw rollback(ts, e);
+        } finally {
+            // 恢复外层事务，异步任务持有的是捕获的TransactionStatus
+            resume(suspended);
+        }
+        if (AsyncSupport.isAsync(r)) {
+            // 异步结果完成时在完成它的线程上提交或回滚，提交失败时返回的结果以TransactionException失败
+            return AsyncSupport.whenComplete(invocation.getMethod(), (CompletionStage<?>) r, (value, error) -> {
+                if (error != null) {
+                    throw rollback(ts, error);
                 }
                 try {
-                    // 设置threadlocal状态
-                    transactionStatus.set(new TransactionStatus(connection));
-                    // 调用业务方法
-                    Object r = method.invoke(proxy, args);
-                    // 提交事务
-                    connection.commit();
-                    // 方法返回
-                    return r;
-                } catch (InvocationTargetException e) {
-                    // 回滚事务
-                    TransactionException te = new TransactionException(e.getCause());
-                    try {
-                        connection.rollback();
-                    } catch (SQLException sqle) {
-                        te.addSuppressed(sqle);
-                    }
-                    throw te;
-                } finally {
-                    // 删除threadlocal状态
-                    transactionStatus.remove();
-                    if (autoCommit) {
-                        connection.setAutoCommit(true);
-                    }
+                    commit(ts);
+                } catch (SQLException e) {
+                    throw new TransactionException(e);
                 }
-            }
+            });
+        }
+        commit(ts);
+        // 方法返回
+        return r;
+    }
+
+    /**
+     * 挂起当前事务，不使用事务执行
+     */
+    Object invokeSuspended(MethodInvocation invocation, TransactionStatus suspended) throws Throwable {
+        transactionStatus.remove();
+        try {
+            return invocation.proceed();
+        } finally {
+            resume(suspended);
+        }
+    }
+
+    /**
+     * 在当前事务中创建保存点执行，异常时回滚到保存点并原样抛出，由外层事务决定是否整体回滚
+     */
+    Object invokeNested(MethodInvocation invocation, TransactionStatus current) throws Throwable {
+        Connection connection = current.connection;
+        Savepoint savepoint = connection.setSavepoint();
+        Object r;
+        try {
+            r = invocation.proceed();
+        } catch (Throwable e) {
+            rollbackToSavepoint(connection, savepoint, e);
+            throw e;
+        }
+        if (AsyncSupport.isAsync(r)) {
+            return AsyncSupport.whenComplete(invocation.getMethod(), (CompletionStage<?>) r, (value, error) -> {
+                if (error != null) {
+                    rollbackToSavepoint(connection, savepoint, error);
+                } else {
+                    releaseSavepoint(connection, savepoint);
+                }
+            });
+        }
+        releaseSavepoint(connection, savepoint);
+        return r;
+    }
+
+    void rollbackToSavepoint(Connection connection, Savepoint savepoint, Throwable e) {
+        try {
+            connection.rollback(savepoint);
+        } catch (SQLException sqle) {
+            e.addSuppressed(sqle);
+        }
+    }
+
+    void releaseSavepoint(Connection connection, Savepoint savepoint) {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // 不支持释放保存点的驱动在事务结束时释放
+            logger.atDebug().log("cannot release savepoint: {}", e.toString());
+        }
+    }
+
+    void resume(TransactionStatus suspended) {
+        if (suspended == null) {
+            transactionStatus.remove();
         } else {
-            // 如果已经有事务，加入当前事务执行
-            return method.invoke(proxy, args);
+            transactionStatus.set(suspended);
+        }
+    }
+
+    /**
+     * 获取连接并按事务属性设置，记录原来的状态在事务结束时恢复
+     */
+    TransactionStatus begin(TransactionAttribute attr) throws SQLException {
+        Connection connection = getConnection(attr.readOnly());
+        TransactionStatus ts = new TransactionStatus(connection);
+        try {
+            if (attr.readOnly()) {
+                try {
+                    connection.setReadOnly(true);
+                    ts.readOnly = true;
+                } catch (SQLException e) {
+                    // 只读只是给驱动的提示，例如SQLite不允许打开后修改
+                    logger.atDebug().log("cannot set connection read-only: {}", e.toString());
+                }
+            }
+            int level = attr.isolation().level;
+            if (level >= 0) {
+                int previous = connection.getTransactionIsolation();
+                if (previous != level) {
+                    connection.setTransactionIsolation(level);
+                    ts.previousIsolation = previous;
+                }
+            }
+            ts.autoCommit = connection.getAutoCommit();
+            if (ts.autoCommit) {
+                connection.setAutoCommit(false); // 关闭自动提交
+            }
+            if (attr.timeout() > 0) {
+                ts.deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(attr.timeout());
+            }
+        } catch (SQLException e) {
+            try {
+                release(ts);
+            } catch (SQLException sqle) {
+                e.addSuppressed(sqle);
+            }
+            throw e;
+        }
+        return ts;
+    }
+
+    /**
+     * 只读事务设置RoutingContext，可以由ReadWriteRoutingDataSource路由到只读副本
+     */
+    Connection getConnection(boolean readOnly) throws SQLException {
+        if (!readOnly) {
+            return this.dataSource.getConnection();
+        }
+        boolean previous = RoutingContext.setReadOnly(true);
+        try {
+            return this.dataSource.getConnection();
+        } finally {
+            RoutingContext.setReadOnly(previous);
+        }
+    }
+
+    /**
+     * 提交事务并释放连接，提交失败时回滚
+     */
+    void commit(TransactionStatus ts) throws SQLException {
+        try {
+            ts.connection.commit();
+        } catch (Throwable e) {
+            throw rollback(ts, e);
+        }
+        release(ts);
+    }
+
+    /**
+     * 回滚事务并释放连接，返回包装了原始异常的TransactionException
+     */
+    TransactionException rollback(TransactionStatus ts, Throwable e) {
+        TransactionException te = new TransactionException(e);
+        try {
+            ts.connection.rollback();
+        } catch (SQLException sqle) {
+            te.addSuppressed(sqle);
+        }
+        try {
+            release(ts);
+        } catch (SQLException sqle) {
+            te.addSuppressed(sqle);
+        }
+        return te;
+    }
+
+    /**
+     * 恢复连接原来的状态后关闭
+     */
+    void release(TransactionStatus ts) throws SQLException {
+        Connection connection = ts.connection;
+        try {
+            if (ts.autoCommit) {
+                connection.setAutoCommit(true);
+            }
+            if (ts.readOnly) {
+                connection.setReadOnly(false);
+            }
+            if (ts.previousIsolation >= 0) {
+                connection.setTransactionIsolation(ts.previousIsolation);
+            }
+        } finally {
+            connection.close();
         }
     }
 }
@@ -0,0 +1,24 @@
+package xyz.xminao.springlet.jdbc.tx;
+
+import xyz.xminao.springlet.annotation.Transactional;
+
+import java.lang.reflect.Method;
+
+/**
+ * 从@Transactional解析出的事务属性，方法上的注解优先于类上的
+ */
+record TransactionAttribute(Transactional.Propagation propagation, Transactional.Isolation isolation, boolean readOnly, int timeout) {
+
+    static final TransactionAttribute DEFAULT = new TransactionAttribute(Transactional.Propagation.REQUIRED, Transactional.Isolation.DEFAULT, false, -1);
+
+    static TransactionAttribute resolve(Method method, Class<?> targetClass) {
+        Transactional anno = method.getAnnotation(Transactional.class);
+        if (anno == null) {
+            anno = targetClass.getAnnotation(Transactional.class);
+        }
+        if (anno == null) {
+            return DEFAULT;
+        }
+        return new TransactionAttribute(anno.propagation(), anno.isolation(), anno.readOnly(), anno.timeout());
+    }
+}
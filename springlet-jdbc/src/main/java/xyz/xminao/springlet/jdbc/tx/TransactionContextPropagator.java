@@ -0,0 +1,35 @@
+package xyz.xminao.springlet.jdbc.tx;
+
+import xyz.xminao.springlet.aop.async.ContextPropagator;
+
+/**
+ * 把当前事务传递到异步任务的线程，异步任务中的JdbcTemplate使用同一个事务连接
+ * JDBC连接不是线程安全的，同一事务的多个异步任务不能并发访问数据库
+ */
+public class TransactionContextPropagator implements ContextPropagator {
+
+    @Override
+    public Object capture() {
+        return DataSourceTransactionManager.transactionStatus.get();
+    }
+
+    @Override
+    public Object restore(Object captured) {
+        TransactionStatus previous = DataSourceTransactionManager.transactionStatus.get();
+        set(captured);
+        return previous;
+    }
+
+    @Override
+    public void reset(Object previous) {
+        set(previous);
+    }
+
+    void set(Object status) {
+        if (status == null) {
+            DataSourceTransactionManager.transactionStatus.remove();
+        } else {
+            DataSourceTransactionManager.transactionStatus.set((TransactionStatus) status);
+        }
+    }
+}
@@ -7,6 +7,12 @@ import java.sql.Connection;
  */
 public class TransactionStatus {
     final Connection connection;
+    // 开始事务前连接的状态，结束时恢复
+    boolean autoCommit;
+    boolean readOnly;
+    int previousIsolation = -1;
+    // 超时的System.nanoTime()，0表示不限制
+    long deadline;
 
     public TransactionStatus(Connection connection) {
         this.connection = connection;
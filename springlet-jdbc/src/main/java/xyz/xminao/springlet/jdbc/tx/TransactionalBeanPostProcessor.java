@@ -1,64 +1,52 @@
 package xyz.xminao.springlet.jdbc.tx;
 
 import xyz.xminao.springlet.annotation.Transactional;
-import xyz.xminao.springlet.aop.ProxyResolver;
-import xyz.xminao.springlet.context.ApplicationContextUtils;
-import xyz.xminao.springlet.context.BeanDefinition;
-import xyz.xminao.springlet.context.BeanPostProcessor;
-import xyz.xminao.springlet.context.ConfigurableApplicationContext;
+import xyz.xminao.springlet.aop.AbstractAdvisingBeanPostProcessor;
+import xyz.xminao.springlet.aop.Advisor;
+import xyz.xminao.springlet.aop.AnnotationMethodMatcher;
+import xyz.xminao.springlet.aop.MethodMatcher;
 import xyz.xminao.springlet.exception.AopConfigException;
-import xyz.xminao.springlet.exception.BeansException;
 
-import java.lang.reflect.InvocationHandler;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Method;
+import java.util.List;
 
 // 让AOP机制生效，拦截@Transactional注解的bean，生成代理对象
-public class TransactionalBeanPostProcessor implements BeanPostProcessor {
+// @Transactional可以标注在类上（拦截所有业务方法）或方法上（只拦截该方法）
+public class TransactionalBeanPostProcessor extends AbstractAdvisingBeanPostProcessor {
 
-    Map<String, Object> originBeans = new HashMap<>();
+    // 只拦截标注了@Transactional的方法，或类上标注时拦截除Object方法外的所有public方法
+    static final AnnotationMethodMatcher transactionalMatcher = new AnnotationMethodMatcher(Transactional.class);
 
     @Override
-    public Object postProcessBeforeInitialization(Object bean, String beanName) {
-        Class<?> beanClass = bean.getClass();
-        Transactional anno = beanClass.getAnnotation(Transactional.class);
-        if (anno != null) {
-            String handlerName;
-            try {
-                handlerName = (String) anno.annotationType().getMethod("value").invoke(bean);
-            } catch (ReflectiveOperationException e) {
-                throw new AopConfigException(e);
-            }
-            Object proxy = createProxy(beanClass, bean, handlerName);
-            originBeans.put(beanName, bean);
-            return proxy;
-        } else {
-            return bean;
-        }
+    public List<MethodMatcher> getPointcuts(Class<?> beanClass) {
+        return transactionalMatcher.matchesAny(beanClass) ? List.of(transactionalMatcher) : List.of();
     }
 
-    Object createProxy(Class<?> beanClass, Object bean, String handlerName) {
-        // 获取容器实例对象
-        ConfigurableApplicationContext ctx = (ConfigurableApplicationContext) ApplicationContextUtils.getRequiredApplicationContext();
-        BeanDefinition def = ctx.findBeanDefinition(handlerName);
-        if (def == null) {
-            throw new AopConfigException();
-        }
-        // 先获取handler的bean
-        Object handlerBean = def.getInstance();
-        if (handlerBean == null) {
-            handlerBean = ctx.createBeanAsEarlySingleton(def);
-        }
-        if (handlerBean instanceof InvocationHandler handler) {
-            return ProxyResolver.getInstance().createProxy(bean, handler);
-        } else {
-            throw new AopConfigException();
+    @Override
+    protected List<Advisor> getAdvisors(Class<?> beanClass, String beanName) {
+        if (!transactionalMatcher.matchesAny(beanClass)) {
+            return List.of();
         }
+        return List.of(createAdvisor(transactionalMatcher, getHandlerName(beanClass)));
     }
 
-    @Override
-    public Object postProcessOnSetProperty(Object bean, String beanName) {
-        Object origin = originBeans.get(beanName);
-        return bean == null ? bean : origin;
+    /**
+     * 事务管理器bean的名字，类上的@Transactional优先，方法上的@Transactional必须使用同一个事务管理器
+     */
+    String getHandlerName(Class<?> beanClass) {
+        Transactional anno = beanClass.getAnnotation(Transactional.class);
+        String handlerName = anno == null ? null : anno.value();
+        for (Method method : beanClass.getMethods()) {
+            Transactional methodAnno = method.getAnnotation(Transactional.class);
+            if (methodAnno != null) {
+                if (handlerName == null) {
+                    handlerName = methodAnno.value();
+                } else if (!handlerName.equals(methodAnno.value())) {
+                    throw new AopConfigException(String.format("Multiple transaction managers specified in class %s: %s, %s",
+                            beanClass.getName(), handlerName, methodAnno.value()));
+                }
+            }
+        }
+        return handlerName;
     }
 }
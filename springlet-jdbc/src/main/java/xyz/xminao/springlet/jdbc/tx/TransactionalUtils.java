@@ -3,6 +3,10 @@ package xyz.xminao.springlet.jdbc.tx;
 import jakarta.annotation.Nullable;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 // 获取当前事务连接工具类,用于一个开启事务的方法内部调用其他方法
 public class TransactionalUtils {
@@ -11,4 +15,19 @@ public class TransactionalUtils {
         TransactionStatus ts = DataSourceTransactionManager.transactionStatus.get();
         return ts == null ? null : ts.connection;
     }
+
+    /**
+     * 当前事务设置了超时时，以剩余时间（向上取整到秒）作为语句的查询超时，已经超时则抛出SQLTimeoutException
+     */
+    public static void applyTimeout(Statement stmt) throws SQLException {
+        TransactionStatus ts = DataSourceTransactionManager.transactionStatus.get();
+        if (ts == null || ts.deadline == 0) {
+            return;
+        }
+        long remaining = ts.deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new SQLTimeoutException("Transaction timed out.");
+        }
+        stmt.setQueryTimeout((int) Math.max(1, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+    }
 }
@@ -0,0 +1,32 @@
+package xyz.xminao.springlet.jdbc;
+
+import xyz.xminao.springlet.annotation.MappingConstructor;
+
+public final class Account {
+
+    final long id;
+    final String email;
+    String name;
+
+    @MappingConstructor({"id", "email"})
+    public Account(long id, String email) {
+        this.id = id;
+        this.email = email;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,123 @@
+package xyz.xminao.springlet.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较事务外执行时两种NonTransactionalMode的往返次数和耗时
+ * 连接和HikariCP配置autoCommit=false时相同，setAutoCommit、commit、rollback按一次网络往返计数并模拟ROUND_TRIP_NANOS的延迟，
+ * 语句本身的执行在两种方式下相同，不计入。
+ *
+ * 运行：mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) xyz.xminao.springlet.jdbc.AutoCommitBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoCommitBenchmark {
+
+    // 同机房MySQL的典型往返时间
+    static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    static final Set<String> ROUND_TRIP_METHODS = Set.of("setAutoCommit", "commit", "rollback");
+
+    @Param({"AUTO_COMMIT", "IMPLICIT_TRANSACTION"})
+    NonTransactionalMode mode;
+
+    Connection physical;
+    JdbcTemplate jdbcTemplate;
+    long roundTrips;
+    long calls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite::memory:");
+        this.physical = dataSource.getConnection();
+        try (Statement st = this.physical.createStatement()) {
+            st.executeUpdate("CREATE TABLE users (id INTEGER PRIMARY KEY, email TEXT, name TEXT, age INTEGER, score REAL)");
+            st.executeUpdate("INSERT INTO users VALUES (1, 'bob@example.com', 'Bob', 30, 9.5)");
+        }
+        this.physical.setAutoCommit(false);
+        this.jdbcTemplate = new JdbcTemplate(roundTripDataSource());
+        this.jdbcTemplate.setNonTransactionalMode(this.mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        System.out.printf("%n%s: %.1f round trips per call%n", this.mode, (double) this.roundTrips / this.calls);
+        this.physical.close();
+    }
+
+    @Benchmark
+    public String queryForObject() {
+        this.calls++;
+        return this.jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, 1);
+    }
+
+    @Benchmark
+    public int update() {
+        this.calls++;
+        return this.jdbcTemplate.update("UPDATE users SET age = age + 1 WHERE id = ?", 1);
+    }
+
+    /**
+     * 总是返回同一个物理连接，关闭时不关闭物理连接，和连接池相同
+     */
+    DataSource roundTripDataSource() {
+        Connection conn = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        return null;
+                    }
+                    if (ROUND_TRIP_METHODS.contains(method.getName())) {
+                        this.roundTrips++;
+                        long end = System.nanoTime() + ROUND_TRIP_NANOS;
+                        while (System.nanoTime() < end) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    try {
+                        return method.invoke(this.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        return conn;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AutoCommitBenchmark.class.getSimpleName()).build()).run();
+    }
+}
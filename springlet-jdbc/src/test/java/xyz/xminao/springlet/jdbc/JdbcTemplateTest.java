@@ -0,0 +1,335 @@
+package xyz.xminao.springlet.jdbc;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+import xyz.xminao.springlet.exception.DataAccessException;
+import xyz.xminao.springlet.jdbc.datasource.StatementCachingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcTemplateTest {
+
+    Path dbFile;
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.dbFile = Files.createTempFile("springlet-jdbc-", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + this.dbFile);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.update("CREATE TABLE users (id INTEGER PRIMARY KEY, email TEXT, name TEXT, age INTEGER, score REAL)");
+        this.jdbcTemplate.update("INSERT INTO users VALUES (?, ?, ?, ?, ?)", 1, "bob@example.com", "Bob", 30, 9.5);
+        this.jdbcTemplate.update("INSERT INTO users VALUES (?, ?, ?, ?, ?)", 2, "alice@example.com", "Alice", 25, null);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(this.dbFile);
+    }
+
+    @Test
+    public void testBeanRowMapper() {
+        List<User> users = this.jdbcTemplate.queryForList("SELECT * FROM users ORDER BY id", User.class);
+        assertEquals(2, users.size());
+        User bob = users.get(0);
+        assertEquals(1, bob.id);
+        assertEquals("bob@example.com", bob.email);
+        assertEquals("Bob", bob.getName());
+        assertEquals(30, bob.getAge());
+        assertEquals(9.5, bob.getScore());
+        // NULL映射为null而不是0
+        assertNull(users.get(1).getScore());
+
+        // 只查询部分列，没有对应属性的列被忽略
+        User alice = this.jdbcTemplate.queryForObject("SELECT name, age, 'x' AS unknown FROM users WHERE id = ?", User.class, 2);
+        assertEquals("Alice", alice.getName());
+        assertEquals(25, alice.getAge());
+        assertNull(alice.email);
+    }
+
+    @Test
+    public void testPlanPerResultSetShape() {
+        BeanRowMapper<User> mapper = new BeanRowMapper<>(User.class);
+        this.jdbcTemplate.queryForList("SELECT * FROM users", mapper);
+        this.jdbcTemplate.queryForList("SELECT * FROM users WHERE id = ?", mapper, 1);
+        assertEquals(1, mapper.plans.size());
+        this.jdbcTemplate.queryForList("SELECT id, name FROM users", mapper);
+        assertEquals(2, mapper.plans.size());
+    }
+
+    @Test
+    public void testGeneratedRowMapper() throws Exception {
+        this.jdbcTemplate.setRowMapperStrategy(RowMapperStrategy.GENERATED);
+        List<User> users = this.jdbcTemplate.queryForList("SELECT * FROM users ORDER BY id", User.class);
+        assertEquals(2, users.size());
+        User bob = users.get(0);
+        assertEquals(1, bob.id);
+        assertEquals("bob@example.com", bob.email);
+        assertEquals("Bob", bob.getName());
+        assertEquals(30, bob.getAge());
+        assertEquals(9.5, bob.getScore());
+        assertNull(users.get(1).getScore());
+
+        User alice = this.jdbcTemplate.queryForObject("SELECT name, age, 'x' AS unknown FROM users WHERE id = ?", User.class, 2);
+        assertEquals("Alice", alice.getName());
+        assertEquals(25, alice.getAge());
+        // 每种列结构生成一个隐藏类
+        GeneratedRowMapper<User> mapper = GeneratedRowMapper.of(User.class);
+        assertEquals(2, mapper.plans.size());
+        assertTrue(mapper.plans.values().stream().allMatch(m -> m.getClass().isHidden()));
+    }
+
+    @Test
+    public void testRecord() {
+        for (RowMapperStrategy strategy : RowMapperStrategy.values()) {
+            this.jdbcTemplate.setRowMapperStrategy(strategy);
+            List<UserRecord> users = this.jdbcTemplate.queryForList("SELECT * FROM users ORDER BY id", UserRecord.class);
+            assertEquals(List.of(new UserRecord(1, "Bob", 30, 9.5), new UserRecord(2, "Alice", 25, null)), users);
+            // 没有对应列的参数使用默认值
+            assertEquals(new UserRecord(0, "Bob", 0, null),
+                    this.jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", UserRecord.class, 1));
+        }
+    }
+
+    @Test
+    public void testMappingConstructor() {
+        for (RowMapperStrategy strategy : RowMapperStrategy.values()) {
+            this.jdbcTemplate.setRowMapperStrategy(strategy);
+            Account account = this.jdbcTemplate.queryForObject("SELECT id, email, name FROM users WHERE id = ?", Account.class, 2);
+            assertEquals(2, account.getId());
+            assertEquals("alice@example.com", account.getEmail());
+            // 不是构造方法参数的列通过setter写入
+            assertEquals("Alice", account.getName());
+        }
+    }
+
+    @Test
+    public void testBatchUpdate() {
+        this.jdbcTemplate.setBatchSize(1000);
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            batchArgs.add(new Object[]{100 + i, "user" + i, 20 + i % 10});
+        }
+        // 分3次executeBatch()，返回每一行的结果
+        int[] counts = this.jdbcTemplate.batchUpdate("INSERT INTO users (id, name, age) VALUES (?, ?, ?)", batchArgs);
+        assertEquals(2500, counts.length);
+        assertTrue(Arrays.stream(counts).allMatch(n -> n == 1));
+        assertEquals(2502, this.jdbcTemplate.queryForNumber("SELECT COUNT(*) FROM users").intValue());
+
+        int[] updated = this.jdbcTemplate.batchUpdate("UPDATE users SET age = age + 1 WHERE age = ?", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, 20 + i);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return 2;
+            }
+        });
+        // age=20的250行先变成21，再和原有的250行一起变成22
+        assertArrayEquals(new int[]{250, 500}, updated);
+        assertEquals(0, this.jdbcTemplate.batchUpdate("DELETE FROM users", List.of()).length);
+    }
+
+    @Test
+    public void testQueryForStream() {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batchArgs.add(new Object[]{100 + i, "user" + i, i % 10});
+        }
+        this.jdbcTemplate.batchUpdate("INSERT INTO users (id, name, age) VALUES (?, ?, ?)", batchArgs);
+        this.jdbcTemplate.setFetchSize(100);
+
+        try (Stream<User> users = this.jdbcTemplate.queryForStream("SELECT * FROM users WHERE id >= ? ORDER BY id", BeanRowMapper.of(User.class), 100)) {
+            assertEquals(List.of("user0", "user1", "user2"), users.limit(3).map(User::getName).toList());
+        }
+        // 关闭Stream后连接已经释放，SQLite的读锁不会阻塞写入
+        assertEquals(1, this.jdbcTemplate.update("DELETE FROM users WHERE id = ?", 100));
+        try (Stream<UserRecord> users = this.jdbcTemplate.queryForStream("SELECT * FROM users WHERE id >= ?", BeanRowMapper.of(UserRecord.class), 100)) {
+            assertEquals(999, users.count());
+        }
+
+        int[] sum = new int[1];
+        this.jdbcTemplate.query("SELECT age FROM users WHERE id >= ?", rs -> sum[0] += rs.getInt(1), 100);
+        // 删除的id=100的行age为0
+        assertEquals(4500, sum[0]);
+    }
+
+    @Test
+    public void testSharedMapper() {
+        assertSame(BeanRowMapper.of(User.class), BeanRowMapper.of(User.class));
+        this.jdbcTemplate.queryForList("SELECT * FROM users", User.class);
+        int plans = BeanRowMapper.of(User.class).plans.size();
+        this.jdbcTemplate.queryForObject("SELECT * FROM users WHERE id = ?", User.class, 1);
+        // 按Class查询时使用共享的BeanRowMapper，同一列结构不会再计算映射计划
+        assertEquals(plans, BeanRowMapper.of(User.class).plans.size());
+    }
+
+    @Test
+    public void testStatementCache() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + this.dbFile);
+        config.setMaximumPoolSize(1);
+        try (StatementCachingDataSource dataSource = new StatementCachingDataSource(new HikariDataSource(config), 2)) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            for (int i = 0; i < 10; i++) {
+                assertEquals("Bob", template.queryForObject("SELECT name FROM users WHERE id = ?", String.class, 1));
+            }
+            // 连接归还连接池后，同一个物理连接上的语句继续使用
+            assertEquals(1, dataSource.getMissCount());
+            assertEquals(9, dataSource.getHitCount());
+            assertEquals(0.9, dataSource.getHitRate(), 1e-9);
+
+            // 每个连接最多缓存2条，第3条SQL淘汰最久没有使用的语句
+            template.queryForObject("SELECT age FROM users WHERE id = ?", Integer.class, 1);
+            template.queryForObject("SELECT email FROM users WHERE id = ?", String.class, 1);
+            assertEquals(1, dataSource.getEvictionCount());
+            assertEquals("Bob", template.queryForObject("SELECT name FROM users WHERE id = ?", String.class, 1));
+            assertEquals(4, dataSource.getMissCount());
+
+            // 归还的语句已清除参数，update同样使用缓存
+            template.update("UPDATE users SET age = ? WHERE id = ?", 31, 1);
+            template.update("UPDATE users SET age = ? WHERE id = ?", 26, 2);
+            assertEquals(10, dataSource.getHitCount());
+            assertEquals(31, template.queryForObject("SELECT age FROM users WHERE id = ?", Integer.class, 1));
+            assertEquals(26, template.queryForObject("SELECT age FROM users WHERE id = ?", Integer.class, 2));
+        }
+    }
+
+    @Test
+    public void testStatementCacheRollsBackDirtyConnection() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + this.dbFile);
+        config.setAutoCommit(false);
+        config.setMaximumPoolSize(1);
+        try (StatementCachingDataSource dataSource = new StatementCachingDataSource(new HikariDataSource(config), 4)) {
+            // 执行缓存的语句后不提交就归还连接
+            try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement("UPDATE users SET age = ? WHERE id = ?")) {
+                ps.setInt(1, 99);
+                ps.setInt(2, 1);
+                assertEquals(1, ps.executeUpdate());
+            }
+            // 下一个借用者拿到同一个物理连接，看不到未提交的修改
+            try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement("SELECT age FROM users WHERE id = ?")) {
+                ps.setInt(1, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(30, rs.getInt(1));
+                }
+                conn.commit();
+            }
+            // 提交过的修改不会被回滚
+            try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement("UPDATE users SET age = ? WHERE id = ?")) {
+                ps.setInt(1, 31);
+                ps.setInt(2, 1);
+                ps.executeUpdate();
+                conn.commit();
+            }
+        }
+        assertEquals(31, this.jdbcTemplate.queryForObject("SELECT age FROM users WHERE id = ?", Integer.class, 1));
+    }
+
+    @Test
+    public void testImplicitTransaction() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + this.dbFile);
+        config.setAutoCommit(false);
+        config.setMaximumPoolSize(1);
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.setNonTransactionalMode(NonTransactionalMode.IMPLICIT_TRANSACTION);
+            template.update("UPDATE users SET age = ? WHERE id = ?", 31, 1);
+            // 隐式事务执行后提交，其他连接可以看到
+            assertEquals(31, this.jdbcTemplate.queryForObject("SELECT age FROM users WHERE id = ?", Integer.class, 1));
+
+            // 失败时整个回调回滚
+            assertThrows(DataAccessException.class, () -> template.execute((Connection conn) -> {
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE users SET age = 40 WHERE id = 1")) {
+                    ps.executeUpdate();
+                }
+                throw new SQLException("failed");
+            }));
+            assertEquals(31, this.jdbcTemplate.queryForObject("SELECT age FROM users WHERE id = ?", Integer.class, 1));
+
+            try (Stream<String> names = template.queryForStream("SELECT name FROM users ORDER BY id", (rs, n) -> rs.getString(1))) {
+                assertEquals(List.of("Bob", "Alice"), names.toList());
+            }
+            // 连接的自动提交保持关闭
+            assertFalse(template.execute(Connection::getAutoCommit));
+        }
+    }
+
+    @Test
+    public void testStreamReleasesOnMapperFailure() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + this.dbFile);
+        config.setAutoCommit(false);
+        config.setMaximumPoolSize(1);
+        config.setConnectionTimeout(1000);
+        try (HikariDataSource pool = new HikariDataSource(config)) {
+            // 记录连接上的commit()和rollback()
+            List<String> calls = new ArrayList<>();
+            DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        Connection conn = pool.getConnection();
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (p, m, a) -> {
+                            if (m.getName().equals("commit") || m.getName().equals("rollback")) {
+                                calls.add(m.getName());
+                            }
+                            try {
+                                return m.invoke(conn, a);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+                    });
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.setNonTransactionalMode(NonTransactionalMode.IMPLICIT_TRANSACTION);
+
+            // prepare()失败时归还连接，否则下面的查询会等待连接超时
+            RowMapper<String> failingPrepare = new RowMapper<>() {
+                @Override
+                public RowMapper<String> prepare(ResultSet rs) {
+                    throw new IllegalStateException("prepare failed");
+                }
+
+                @Override
+                public String mapRow(ResultSet rs, int rowNum) {
+                    return null;
+                }
+            };
+            assertThrows(IllegalStateException.class, () -> template.queryForStream("SELECT name FROM users", failingPrepare));
+            assertEquals(List.of("rollback"), calls);
+            assertEquals("Bob", template.queryForObject("SELECT name FROM users WHERE id = ?", String.class, 1));
+
+            // 遍历时映射失败，关闭Stream时回滚而不是提交
+            calls.clear();
+            try (Stream<String> names = template.queryForStream("SELECT name FROM users", (rs, n) -> {
+                throw new IllegalStateException("map failed");
+            })) {
+                assertThrows(IllegalStateException.class, names::toList);
+            }
+            assertEquals(List.of("rollback"), calls);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package xyz.xminao.springlet.jdbc;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.implementation.ExceptionMethod;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较BeanRowMapper、GeneratedRowMapper和手写RowMapper映射10000行的耗时
+ * 数据预先读入内存中的ResultSet，getter只是数组访问，只测量映射本身，不包括驱动读取和转换数据
+ *
+ * 运行：mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) xyz.xminao.springlet.jdbc.RowMapperBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    static final int ROWS = 10000;
+
+    ArrayResultSet rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite::memory:");
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("CREATE TABLE users (id INTEGER PRIMARY KEY, email TEXT, name TEXT, age INTEGER, score REAL)");
+            conn.setAutoCommit(false);
+            for (int i = 0; i < ROWS; i++) {
+                st.executeUpdate(String.format("INSERT INTO users VALUES (%d, 'user%d@example.com', 'user%d', %d, %d.5)", i, i, i, i % 100, i));
+            }
+            conn.commit();
+            try (ResultSet rs = st.executeQuery("SELECT * FROM users")) {
+                CachedRowSet cached = RowSetProvider.newFactory().createCachedRowSet();
+                cached.populate(rs);
+                this.rows = ArrayResultSet.of(cached);
+            }
+        }
+    }
+
+    @Benchmark
+    public void beanRowMapper(Blackhole bh) throws SQLException {
+        map(BeanRowMapper.of(User.class), bh);
+    }
+
+    @Benchmark
+    public void generatedRowMapper(Blackhole bh) throws SQLException {
+        map(GeneratedRowMapper.of(User.class), bh);
+    }
+
+    @Benchmark
+    public void handWritten(Blackhole bh) throws SQLException {
+        map((rs, rowNum) -> {
+            User user = new User();
+            user.id = rs.getLong(1);
+            user.email = rs.getString(2);
+            user.setName(rs.getString(3));
+            user.setAge(rs.getInt(4));
+            user.setScore(ResultSetGetters.getDouble(rs, 5));
+            return user;
+        }, bh);
+    }
+
+    void map(RowMapper<User> rowMapper, Blackhole bh) throws SQLException {
+        this.rows.beforeFirst();
+        RowMapper<User> mapper = rowMapper.prepare(this.rows);
+        int rowNum = 0;
+        while (this.rows.next()) {
+            bh.consume(mapper.mapRow(this.rows, ++rowNum));
+        }
+    }
+
+    /**
+     * 只实现映射用到的方法的内存ResultSet，其他方法由ByteBuddy生成并抛出UnsupportedOperationException
+     */
+    public abstract static class ArrayResultSet implements ResultSet {
+
+        Object[][] data;
+        ResultSetMetaData meta;
+        int cursor;
+        boolean wasNull;
+
+        static ArrayResultSet of(CachedRowSet cached) throws SQLException {
+            ArrayResultSet rs;
+            try {
+                rs = new ByteBuddy().subclass(ArrayResultSet.class)
+                        .method(ElementMatchers.isAbstract())
+                        .intercept(ExceptionMethod.throwing(UnsupportedOperationException.class))
+                        .make().load(ArrayResultSet.class.getClassLoader()).getLoaded()
+                        .getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+            int columns = cached.getMetaData().getColumnCount();
+            List<Object[]> list = new ArrayList<>();
+            cached.beforeFirst();
+            while (cached.next()) {
+                Object[] row = new Object[columns];
+                for (int i = 0; i < columns; i++) {
+                    row[i] = cached.getObject(i + 1);
+                }
+                list.add(row);
+            }
+            rs.data = list.toArray(new Object[0][]);
+            rs.meta = cached.getMetaData();
+            return rs;
+        }
+
+        Object value(int index) {
+            Object v = this.data[this.cursor][index - 1];
+            this.wasNull = v == null;
+            return v;
+        }
+
+        @Override
+        public boolean next() {
+            return ++this.cursor < this.data.length;
+        }
+
+        @Override
+        public void beforeFirst() {
+            this.cursor = -1;
+        }
+
+        @Override
+        public boolean wasNull() {
+            return this.wasNull;
+        }
+
+        @Override
+        public ResultSetMetaData getMetaData() {
+            return this.meta;
+        }
+
+        @Override
+        public String getString(int index) {
+            Object v = value(index);
+            return v == null ? null : v.toString();
+        }
+
+        @Override
+        public int getInt(int index) {
+            Object v = value(index);
+            return v == null ? 0 : ((Number) v).intValue();
+        }
+
+        @Override
+        public long getLong(int index) {
+            Object v = value(index);
+            return v == null ? 0 : ((Number) v).longValue();
+        }
+
+        @Override
+        public double getDouble(int index) {
+            Object v = value(index);
+            return v == null ? 0 : ((Number) v).doubleValue();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,35 @@
+package xyz.xminao.springlet.jdbc;
+
+public class User {
+
+    public long id;
+    public String email;
+
+    String name;
+    int age;
+    Double score;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+}
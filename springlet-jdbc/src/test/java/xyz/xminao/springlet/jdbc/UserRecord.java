@@ -0,0 +1,4 @@
+package xyz.xminao.springlet.jdbc;
+
+public record UserRecord(long id, String name, int age, Double score) {
+}
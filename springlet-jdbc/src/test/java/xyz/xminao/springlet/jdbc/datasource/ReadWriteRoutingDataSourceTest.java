@@ -0,0 +1,102 @@
+package xyz.xminao.springlet.jdbc.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+import xyz.xminao.springlet.jdbc.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 主库和副本使用不同的SQLite文件，每个库的node表保存自己的名字
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    final List<Path> dbFiles = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Path dbFile : this.dbFiles) {
+            Files.deleteIfExists(dbFile);
+        }
+    }
+
+    DataSource createNode(String name) throws Exception {
+        Path dbFile = Files.createTempFile("springlet-jdbc-" + name + "-", ".db");
+        this.dbFiles.add(dbFile);
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + dbFile);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("CREATE TABLE node (name TEXT)");
+        template.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(createNode("primary"),
+                List.of(createNode("replica-0"), createNode("replica-1")), ReadWriteRoutingDataSource.LoadBalance.ROUND_ROBIN, Duration.ofMinutes(1));
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        // 事务外的查询轮流使用副本
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            names.add(template.queryForObject("SELECT name FROM node", String.class));
+        }
+        assertEquals(2, names.stream().filter("replica-0"::equals).count());
+        assertEquals(2, names.stream().filter("replica-1"::equals).count());
+        // 写操作使用主库
+        template.update("UPDATE node SET name = ?", "primary-updated");
+        assertEquals("primary-updated", template.execute(conn -> {
+            try (var rs = conn.createStatement().executeQuery("SELECT name FROM node")) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }));
+        assertTrue(template.queryForObject("SELECT name FROM node", String.class).startsWith("replica-"));
+    }
+
+    @Test
+    public void testLeastInFlight() throws Exception {
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(createNode("primary"),
+                List.of(createNode("replica-0"), createNode("replica-1")), ReadWriteRoutingDataSource.LoadBalance.LEAST_IN_FLIGHT, Duration.ofMinutes(1));
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        // 未关闭的Stream占用一个副本的连接，之后的查询都使用另一个副本
+        try (Stream<String> stream = template.queryForStream("SELECT name FROM node", (rs, n) -> rs.getString(1))) {
+            String busy = stream.findFirst().orElseThrow();
+            for (int i = 0; i < 3; i++) {
+                String name = template.queryForObject("SELECT name FROM node", String.class);
+                assertTrue(name.startsWith("replica-"));
+                assertNotEquals(busy, name);
+            }
+        }
+        assertEquals(0, dataSource.replicas[0].inFlight.get());
+        assertEquals(0, dataSource.replicas[1].inFlight.get());
+    }
+
+    @Test
+    public void testEjectReplica() throws Exception {
+        // 目录不存在，获取连接失败
+        SQLiteDataSource broken = new SQLiteDataSource();
+        broken.setUrl("jdbc:sqlite:" + Files.createTempDirectory("springlet-jdbc-").resolve("missing/replica.db"));
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(createNode("primary"),
+                List.of(broken, createNode("replica-1")), ReadWriteRoutingDataSource.LoadBalance.ROUND_ROBIN, Duration.ofMinutes(1));
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica-1", template.queryForObject("SELECT name FROM node", String.class));
+        }
+        assertEquals(1, dataSource.getAvailableReplicaCount());
+
+        // 所有副本都不可用时读主库
+        ReadWriteRoutingDataSource allBroken = new ReadWriteRoutingDataSource(createNode("primary"),
+                List.of(broken), ReadWriteRoutingDataSource.LoadBalance.ROUND_ROBIN, Duration.ZERO);
+        assertEquals("primary", new JdbcTemplate(allBroken).queryForObject("SELECT name FROM node", String.class));
+    }
+}
@@ -0,0 +1,118 @@
+package xyz.xminao.springlet.jdbc.namedparam;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+import xyz.xminao.springlet.exception.DataAccessException;
+import xyz.xminao.springlet.jdbc.User;
+import xyz.xminao.springlet.jdbc.UserRecord;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NamedParameterJdbcTemplateTest {
+
+    Path dbFile;
+    NamedParameterJdbcTemplate template;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.dbFile = Files.createTempFile("springlet-jdbc-", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + this.dbFile);
+        this.template = new NamedParameterJdbcTemplate(dataSource);
+        this.template.getJdbcTemplate().update("CREATE TABLE users (id INTEGER PRIMARY KEY, email TEXT, name TEXT, age INTEGER, score REAL)");
+        String insert = "INSERT INTO users VALUES (:id, :email, :name, :age, :score)";
+        this.template.update(insert, new MapSqlParameterSource()
+                .addValue("id", 1).addValue("email", "bob@example.com").addValue("name", "Bob").addValue("age", 30).addValue("score", 9.5));
+        this.template.update(insert, new MapSqlParameterSource()
+                .addValue("id", 2).addValue("email", "alice@example.com").addValue("name", "Alice").addValue("age", 25).addValue("score", null));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(this.dbFile);
+    }
+
+    @Test
+    public void testParse() {
+        ParsedSql parsed = ParsedSql.parse("SELECT ':skip', \"a:b\" FROM t -- :comment\nWHERE x::int = :x /* :y */ AND (y = :y OR z = :x)");
+        assertArrayEquals(new String[]{"x", "y", "x"}, parsed.names);
+        assertEquals("SELECT ':skip', \"a:b\" FROM t -- :comment\nWHERE x::int = ? /* :y */ AND (y = ? OR z = ?)", parsed.positionalSql);
+        assertThrows(DataAccessException.class, () -> ParsedSql.parse("SELECT * FROM t WHERE a = :a AND b = ?"));
+    }
+
+    @Test
+    public void testMapAndBeanParameters() {
+        User user = this.template.queryForObject("SELECT * FROM users WHERE name = :name AND age > :age",
+                Map.of("name", "Bob", "age", 20), User.class);
+        assertEquals(1, user.id);
+
+        // 从对象的public字段和getter取值
+        user.setAge(31);
+        assertEquals(1, this.template.update("UPDATE users SET age = :age WHERE id = :id", SqlParameterSource.of(user)));
+        // record组件
+        UserRecord record = new UserRecord(2, "Alice", 26, null);
+        assertEquals(1, this.template.update("UPDATE users SET age = :age WHERE name = :name", SqlParameterSource.of(record)));
+        assertEquals(57, this.template.queryForNumber("SELECT SUM(age) FROM users WHERE id IN (:id, :other)",
+                Map.of("id", 1, "other", 2)).intValue());
+
+        assertThrows(DataAccessException.class, () -> this.template.queryForList("SELECT * FROM users WHERE id = :missing", Map.of(), User.class));
+    }
+
+    @Test
+    public void testInList() {
+        String sql = "SELECT name FROM users WHERE id IN (:ids) AND age >= :age ORDER BY id";
+        assertEquals(List.of("Bob", "Alice"), this.template.queryForList(sql, Map.of("ids", List.of(1, 2, 3), "age", 0), (rs, n) -> rs.getString(1)));
+        assertEquals(List.of("Alice"), this.template.queryForList(sql, Map.of("ids", new Object[]{2}, "age", 0), (rs, n) -> rs.getString(1)));
+        assertEquals(List.of("Bob"), this.template.queryForList(sql, Map.of("ids", Set.of(1), "age", 0), (rs, n) -> rs.getString(1)));
+        // 空列表不匹配任何行
+        assertEquals(List.of(), this.template.queryForList(sql, Map.of("ids", List.of(), "age", 0), (rs, n) -> rs.getString(1)));
+
+        // 同一SQL只解析一次，展开后的SQL按元素个数缓存
+        ParsedSql parsed = this.template.getParsedSql(sql);
+        assertSame(parsed, this.template.getParsedSql(sql));
+        assertEquals(3, parsed.expanded.size());
+        // 3个元素补齐为4个
+        assertEquals("SELECT name FROM users WHERE id IN (?, ?, ?, ?) AND age >= ? ORDER BY id", parsed.expanded.get(new ParsedSql.Arity(new int[]{4, -1})));
+    }
+
+    @Test
+    public void testExpandedBounded() {
+        String sql = "SELECT COUNT(*) FROM users WHERE id IN (:ids)";
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            ids.add(i);
+            assertEquals(Math.min(i, 2), this.template.queryForNumber(sql, Map.of("ids", ids)).intValue());
+        }
+        // 1到100个元素只展开为1、2、4...128个参数
+        assertEquals(8, this.template.getParsedSql(sql).expanded.size());
+
+        String twoLists = "SELECT COUNT(*) FROM users WHERE id IN (:a) OR id IN (:b)";
+        List<Integer> a = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            a.add(i);
+            List<Integer> b = new ArrayList<>();
+            for (int j = 1; j <= 300; j += 7) {
+                b.add(j);
+                this.template.getParsedSql(twoLists).bind(SqlParameterSource.of(Map.of("a", a, "b", b)));
+            }
+        }
+        assertEquals(ParsedSql.MAX_EXPANDED, this.template.getParsedSql(twoLists).expanded.size());
+    }
+
+    @Test
+    public void testBatchUpdate() {
+        int[] counts = this.template.batchUpdate("UPDATE users SET score = :score WHERE id = :id",
+                List.of(Map.of("id", 1, "score", 1.0), Map.of("id", 2, "score", 2.0), Map.of("id", 3, "score", 3.0)));
+        assertArrayEquals(new int[]{1, 1, 0}, counts);
+        assertEquals(3.0, this.template.queryForNumber("SELECT SUM(score) FROM users", Map.of()).doubleValue());
+    }
+}
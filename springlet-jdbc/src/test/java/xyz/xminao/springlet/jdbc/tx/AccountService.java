@@ -0,0 +1,90 @@
+package xyz.xminao.springlet.jdbc.tx;
+
+import xyz.xminao.springlet.annotation.Transactional;
+import xyz.xminao.springlet.jdbc.JdbcTemplate;
+
+import java.sql.Connection;
+
+import static xyz.xminao.springlet.annotation.Transactional.Isolation;
+import static xyz.xminao.springlet.annotation.Transactional.Propagation;
+
+@Transactional
+public class AccountService {
+
+    JdbcTemplate jdbcTemplate;
+    // 代理对象，通过它调用才会经过事务拦截器
+    AccountService self;
+
+    public void insert(String name) {
+        this.jdbcTemplate.update("INSERT INTO audit VALUES (?)", name);
+    }
+
+    public void insertAndFail(String name) {
+        insert(name);
+        throw new IllegalStateException("failed: " + name);
+    }
+
+    /**
+     * 新事务中写入的记录不受外层回滚影响
+     */
+    public void auditThenFail(String name) {
+        this.self.audit(name + "-audit");
+        insertAndFail(name);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void audit(String name) {
+        insert(name);
+    }
+
+    /**
+     * 嵌套事务失败只回滚到保存点
+     */
+    public void insertWithNestedFailure(String name) {
+        insert(name);
+        try {
+            this.self.nestedInsertAndFail(name + "-nested");
+        } catch (IllegalStateException e) {
+            // 忽略嵌套事务的失败，外层继续提交
+        }
+    }
+
+    @Transactional(propagation = Propagation.NESTED)
+    public void nestedInsertAndFail(String name) {
+        insertAndFail(name);
+    }
+
+    public boolean notSupportedInTransaction() {
+        return this.self.inTransaction();
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean inTransaction() {
+        return TransactionalUtils.getCurrentConnection() != null;
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean supportsInTransaction() {
+        return TransactionalUtils.getCurrentConnection() != null;
+    }
+
+    @Transactional(isolation = Isolation.READ_UNCOMMITTED)
+    public int isolation() {
+        return this.jdbcTemplate.execute(Connection::getTransactionIsolation);
+    }
+
+    @Transactional(readOnly = true)
+    public String readOnlyNode() {
+        return this.jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    public String node() {
+        return this.jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    @Transactional(timeout = 1)
+    public void slowInsert(String name) throws InterruptedException {
+        Thread.sleep(1100);
+        insert(name);
+    }
+}
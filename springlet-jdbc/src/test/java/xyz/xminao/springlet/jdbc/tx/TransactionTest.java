@@ -0,0 +1,185 @@
+package xyz.xminao.springlet.jdbc.tx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+import xyz.xminao.springlet.annotation.Transactional;
+import xyz.xminao.springlet.exception.TransactionException;
+import xyz.xminao.springlet.jdbc.JdbcTemplate;
+import xyz.xminao.springlet.jdbc.datasource.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionTest {
+
+    final List<Path> dbFiles = new ArrayList<>();
+    JdbcTemplate jdbcTemplate;
+    DataSourceTransactionManager transactionManager;
+    AccountService service;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        DataSource dataSource = new ReadWriteRoutingDataSource(createNode("primary"), List.of(createNode("replica")),
+                ReadWriteRoutingDataSource.LoadBalance.ROUND_ROBIN, Duration.ofMinutes(1));
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+        AccountService origin = new AccountService();
+        origin.jdbcTemplate = this.jdbcTemplate;
+        this.service = (AccountService) new TestTransactionalBeanPostProcessor(this.transactionManager)
+                .postProcessBeforeInitialization(origin, "accountService");
+        origin.self = this.service;
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Path dbFile : this.dbFiles) {
+            Files.deleteIfExists(dbFile);
+        }
+    }
+
+    DataSource createNode(String name) throws Exception {
+        Path dbFile = Files.createTempFile("springlet-jdbc-" + name + "-", ".db");
+        this.dbFiles.add(dbFile);
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + dbFile);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("CREATE TABLE node (name TEXT)");
+        template.update("INSERT INTO node VALUES (?)", name);
+        template.update("CREATE TABLE audit (name TEXT)");
+        return dataSource;
+    }
+
+    List<String> audits() {
+        // 事务外的查询读副本，这里直接读主库
+        return this.jdbcTemplate.execute((Connection conn) -> {
+            List<String> names = new ArrayList<>();
+            try (var rs = conn.createStatement().executeQuery("SELECT name FROM audit ORDER BY name")) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+            return names;
+        });
+    }
+
+    @Test
+    public void testRequired() {
+        this.service.insert("a");
+        assertThrows(TransactionException.class, () -> this.service.insertAndFail("b"));
+        assertEquals(List.of("a"), audits());
+    }
+
+    @Test
+    public void testRequiresNew() {
+        assertThrows(TransactionException.class, () -> this.service.auditThenFail("a"));
+        assertEquals(List.of("a-audit"), audits());
+    }
+
+    @Test
+    public void testNested() {
+        this.service.insertWithNestedFailure("a");
+        assertEquals(List.of("a"), audits());
+    }
+
+    @Test
+    public void testSupportsAndNotSupported() {
+        assertFalse(this.service.supportsInTransaction());
+        assertFalse(this.service.notSupportedInTransaction());
+    }
+
+    @Test
+    public void testIsolation() {
+        assertEquals(Connection.TRANSACTION_READ_UNCOMMITTED, this.service.isolation());
+    }
+
+    @Test
+    public void testReadOnly() {
+        // 只读事务路由到副本，读写事务使用主库
+        assertEquals("replica", this.service.readOnlyNode());
+        assertEquals("primary", this.service.node());
+    }
+
+    @Test
+    public void testTimeout() {
+        TransactionException e = assertThrows(TransactionException.class, () -> this.service.slowInsert("a"));
+        boolean timedOut = false;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            timedOut |= t instanceof SQLTimeoutException;
+        }
+        assertTrue(timedOut);
+        assertEquals(List.of(), audits());
+    }
+
+    @Test
+    public void testAttributeCache() throws Exception {
+        this.service.insert("a");
+        Map<Method, TransactionAttribute> attributes = this.transactionManager.attributes.get(AccountService.class);
+        int size = attributes.size();
+        this.service.insert("b");
+        assertEquals(size, attributes.size());
+        assertNull(attributes.get(AccountService.class.getMethod("readOnlyNode")));
+        this.service.readOnlyNode();
+        assertTrue(attributes.get(AccountService.class.getMethod("readOnlyNode")).readOnly());
+    }
+
+    @Test
+    public void testClassAttributePerTargetClass() {
+        TestTransactionalBeanPostProcessor processor = new TestTransactionalBeanPostProcessor(this.transactionManager);
+        ReplicaNodeReader replicaOrigin = new ReplicaNodeReader();
+        replicaOrigin.jdbcTemplate = this.jdbcTemplate;
+        PrimaryNodeReader primaryOrigin = new PrimaryNodeReader();
+        primaryOrigin.jdbcTemplate = this.jdbcTemplate;
+        NodeReader replica = (NodeReader) processor.postProcessBeforeInitialization(replicaOrigin, "replicaNodeReader");
+        NodeReader primary = (NodeReader) processor.postProcessBeforeInitialization(primaryOrigin, "primaryNodeReader");
+        // 继承的同一个方法按各自类上的@Transactional处理
+        assertEquals("replica", replica.node());
+        assertEquals("primary", primary.node());
+        assertEquals("replica", replica.node());
+    }
+
+    public static class NodeReader {
+
+        JdbcTemplate jdbcTemplate;
+
+        public String node() {
+            return this.jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public static class ReplicaNodeReader extends NodeReader {
+    }
+
+    @Transactional
+    public static class PrimaryNodeReader extends NodeReader {
+    }
+
+    /**
+     * 不依赖容器，直接使用指定的事务管理器
+     */
+    static class TestTransactionalBeanPostProcessor extends TransactionalBeanPostProcessor {
+
+        final DataSourceTransactionManager transactionManager;
+
+        TestTransactionalBeanPostProcessor(DataSourceTransactionManager transactionManager) {
+            this.transactionManager = transactionManager;
+        }
+
+        @Override
+        protected Object getHandlerBean(String handlerName) {
+            return this.transactionManager;
+        }
+    }
+}